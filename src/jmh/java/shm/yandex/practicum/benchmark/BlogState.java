@@ -0,0 +1,161 @@
+package shm.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ScriptUtils;
+import shm.yandex.practicum.repository.CommentRepository;
+import shm.yandex.practicum.repository.FullTextSearchIndex;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+import shm.yandex.practicum.service.CommentService;
+import shm.yandex.practicum.service.LikeAggregator;
+import shm.yandex.practicum.service.PostPageCache;
+import shm.yandex.practicum.service.PostService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Общее состояние бенчмарков: H2 в памяти со схемой из schema_posts.sql, заполненная posts постами.
+ * У поста i пять тегов tag((i + 3k) % 20), k = 0..4, и по 3 комментария у каждого десятого поста.
+ * Индексы в памяти включаются -Dblog.bench.indexes=true (как в профиле prod), по умолчанию - только SQL
+ */
+@State(Scope.Benchmark)
+public class BlogState {
+
+    static final int TAG_COUNT = 20;
+    private static final String[] WORDS = {"java", "spring", "kotlin", "docker", "postgres", "kafka", "linux", "gradle"};
+    private static final int SEED_BATCH = 10_000;
+
+    @Param({"10000", "100000", "1000000"})
+    public int posts;
+
+    public JdbcTemplate jdbcTemplate;
+    public JdbcNativePostRepository postRepository;
+    public CommentRepository commentRepository;
+    public PostService postService;
+    public CommentService commentService;
+    public LikeAggregator likeAggregator;
+
+    private SingleConnectionDataSource dataSource;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:jmh_" + posts + ";DB_CLOSE_DELAY=-1", "sa", "", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            ScriptUtils.executeSqlScript(connection, new ClassPathResource("schema_posts.sql"));
+            return null;
+        });
+        // Только схема и индексы - демонстрационные данные убираем
+        jdbcTemplate.execute("DELETE FROM comments");
+        jdbcTemplate.execute("DELETE FROM post_tags");
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.execute("DELETE FROM tags");
+        jdbcTemplate.execute("ALTER TABLE posts ALTER COLUMN id RESTART WITH 1");
+        jdbcTemplate.execute("ALTER TABLE tags ALTER COLUMN id RESTART WITH 1");
+        jdbcTemplate.execute("ALTER TABLE comments ALTER COLUMN id RESTART WITH 1");
+
+        seed();
+
+        boolean indexes = Boolean.getBoolean("blog.bench.indexes");
+        TitleTrigramIndex titleIndex = new TitleTrigramIndex(jdbcTemplate, indexes);
+        TagBitmapIndex tagIndex = new TagBitmapIndex(jdbcTemplate, indexes);
+        FullTextSearchIndex fullTextIndex = new FullTextSearchIndex(jdbcTemplate, indexes);
+        TagDictionary tagDictionary = new TagDictionary(jdbcTemplate, indexes);
+        if (indexes) {
+            titleIndex.rebuild();
+            tagIndex.rebuild();
+            fullTextIndex.rebuild();
+            tagDictionary.reload();
+        }
+
+        postRepository = new JdbcNativePostRepository(jdbcTemplate, titleIndex, tagIndex, tagDictionary,
+                List.of(titleIndex, tagIndex, fullTextIndex));
+        commentRepository = new CommentRepository(jdbcTemplate);
+        // Кэш страниц выключен - измеряем путь до БД (кроме лайков: они пишутся в БД только при flush)
+        PostPageCache pageCache = new PostPageCache(postRepository, false, 1024, 30, 600);
+        likeAggregator = new LikeAggregator(postRepository, pageCache);
+        postService = new PostService(postRepository, fullTextIndex, pageCache, likeAggregator);
+        commentService = new CommentService(commentRepository, pageCache);
+    }
+
+    // Планировщика в JMH нет - накопленные за итерацию лайки записываем сами, чтобы они не копились между итерациями.
+    // Время teardown в результат не входит
+    @TearDown(Level.Iteration)
+    public void flushLikes() {
+        likeAggregator.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.destroy();
+    }
+
+    public long randomPostId() {
+        return ThreadLocalRandom.current().nextLong(1, posts + 1);
+    }
+
+    public static List<String> tagsOf(long postId) {
+        List<String> tags = new ArrayList<>();
+        for (int k = 0; k < 5; k++) {
+            tags.add("tag" + (postId + 3L * k) % TAG_COUNT);
+        }
+        return tags;
+    }
+
+    private void seed() {
+        List<Object[]> tagArgs = new ArrayList<>();
+        for (int t = 0; t < TAG_COUNT; t++) {
+            tagArgs.add(new Object[]{(long) t + 1, "tag" + t});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tags(id, name) VALUES (?, ?)", tagArgs);
+        jdbcTemplate.execute("ALTER TABLE tags ALTER COLUMN id RESTART WITH " + (TAG_COUNT + 1));
+
+        List<Object[]> postArgs = new ArrayList<>(SEED_BATCH);
+        List<Object[]> postTagArgs = new ArrayList<>(SEED_BATCH * 5);
+        List<Object[]> commentArgs = new ArrayList<>();
+        for (long id = 1; id <= posts; id++) {
+            boolean withComments = id % 10 == 0;
+            postArgs.add(new Object[]{id, "Пост номер " + id + " про " + WORDS[(int) (id % WORDS.length)],
+                    "Текст поста " + id + ": " + WORDS[(int) ((id / 8) % WORDS.length)], (int) (id % 1000),
+                    withComments ? 3 : 0});
+            for (int k = 0; k < 5; k++) {
+                postTagArgs.add(new Object[]{id, (id + 3L * k) % TAG_COUNT + 1});
+            }
+            if (withComments) {
+                for (int c = 1; c <= 3; c++) {
+                    commentArgs.add(new Object[]{"Комментарий " + c + " к посту " + id, id});
+                }
+            }
+
+            if (postArgs.size() == SEED_BATCH || id == posts) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO posts(id, title, text, likes_count, comments_count) VALUES (?, ?, ?, ?, ?)", postArgs);
+                jdbcTemplate.batchUpdate("INSERT INTO post_tags(post_id, tag_id) VALUES (?, ?)", postTagArgs);
+                if (!commentArgs.isEmpty()) {
+                    jdbcTemplate.batchUpdate("INSERT INTO comments(text, post_id) VALUES (?, ?)", commentArgs);
+                }
+                postArgs.clear();
+                postTagArgs.clear();
+                commentArgs.clear();
+            }
+        }
+        jdbcTemplate.execute("ALTER TABLE posts ALTER COLUMN id RESTART WITH " + (posts + 1));
+        System.out.println("Seeded " + posts + " posts");
+    }
+}
@@ -0,0 +1,45 @@
+package shm.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.model.CommentsPage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Добавление комментария и чтение комментариев поста (страница и прежний полный список)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CommentBenchmark {
+
+    @Benchmark
+    public Comment add(BlogState state) {
+        return state.commentService.addComment(new Comment(null, "Комментарий из бенчмарка", state.randomPostId()));
+    }
+
+    @Benchmark
+    public CommentsPage listPage(BlogState state) {
+        return state.commentService.getCommentsPage(commentedPostId(state), null, null, 50);
+    }
+
+    @Benchmark
+    public List<Comment> listAll(BlogState state) {
+        return state.commentService.getCommentsByPostId(commentedPostId(state));
+    }
+
+    // Комментарии при заполнении есть у каждого десятого поста
+    private static long commentedPostId(BlogState state) {
+        return Math.max(10, state.randomPostId() / 10 * 10);
+    }
+}
@@ -0,0 +1,48 @@
+package shm.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import shm.yandex.practicum.model.PostsPage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Первая страница ленты (10 постов) для разных видов поиска
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostSearchBenchmark {
+
+    @Benchmark
+    public PostsPage noFilter(BlogState state) {
+        return state.postService.findPostsBySearchWithPagination("", 1, 10);
+    }
+
+    @Benchmark
+    public PostsPage singleWord(BlogState state) {
+        return state.postService.findPostsBySearchWithPagination("spring", 1, 10);
+    }
+
+    @Benchmark
+    public PostsPage oneTag(BlogState state) {
+        return state.postService.findPostsBySearchWithPagination("#tag0", 1, 10);
+    }
+
+    @Benchmark
+    public PostsPage threeTags(BlogState state) {
+        return state.postService.findPostsBySearchWithPagination("#tag0 #tag3 #tag6", 1, 10);
+    }
+
+    @Benchmark
+    public PostsPage fiveTags(BlogState state) {
+        return state.postService.findPostsBySearchWithPagination("#tag0 #tag3 #tag6 #tag9 #tag12", 1, 10);
+    }
+}
@@ -0,0 +1,61 @@
+package shm.yandex.practicum.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import shm.yandex.practicum.model.Post;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение поста по id, создание с тегами, редактирование и лайк.
+ * likeInMemory - только клик: счетчик в памяти, без записи в БД (ее делает периодический flush);
+ * likeAndFlush - клик и сразу запись накопленного в posts.likes_count, то есть путь до БД на каждый лайк
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostWriteBenchmark {
+
+    @Benchmark
+    public Post findById(BlogState state) {
+        return state.postService.findById(state.randomPostId());
+    }
+
+    @Benchmark
+    public Post saveWithTags(BlogState state) {
+        Post post = new Post(null, "Новый пост", "Текст нового поста", 0, 0, null);
+        post.setTags(List.of("tag1", "tag4", "benchmark"));
+        state.postService.save(post);
+        return post;
+    }
+
+    @Benchmark
+    public Post update(BlogState state) {
+        long id = state.randomPostId();
+        Post post = new Post(id, "Измененный пост " + id, "Измененный текст", 0, 0, null);
+        // Теги те же, что при заполнении: типичное редактирование текста без изменения тегов
+        post.setTags(BlogState.tagsOf(id));
+        state.postService.update(post);
+        return post;
+    }
+
+    @Benchmark
+    public Post likeInMemory(BlogState state) {
+        return state.postService.like(state.randomPostId());
+    }
+
+    @Benchmark
+    public Post likeAndFlush(BlogState state) {
+        Post post = state.postService.like(state.randomPostId());
+        state.likeAggregator.flush();
+        return post;
+    }
+}
@@ -0,0 +1,210 @@
+package shm.yandex.practicum.configuration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.web.multipart.MultipartFile;
+import shm.yandex.practicum.jfr.RepositoryQueryEvent;
+import shm.yandex.practicum.model.SearchQuery;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Таймеры вызовов репозиториев и MinIO (blog.repository.calls, blog.minio.calls) с тегами
+ * component, operation и outcome, количество строк в ответах репозиториев (blog.repository.rows)
+ * и объем переданных в MinIO и полученных из него байт (blog.minio.bytes).
+ * Вызовы репозиториев также пишутся событиями JFR {@link RepositoryQueryEvent}.
+ * Метры создаются при первом вызове и дальше берутся из карты - без поиска в реестре на каждый вызов
+ */
+public class BlogMetricsInterceptor implements MethodInterceptor {
+
+    public static final String MINIO_COMPONENT = "MinioService";
+
+    private final Supplier<MeterRegistry> registrySupplier;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> rows = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+    private volatile Counter uploadedBytes;
+    private volatile Counter downloadedBytes;
+
+    public BlogMetricsInterceptor(Supplier<MeterRegistry> registrySupplier) {
+        this.registrySupplier = registrySupplier;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        String component = AopUtils.getTargetClass(invocation.getThis()).getSimpleName();
+        String operation = invocation.getMethod().getName();
+        boolean minio = MINIO_COMPONENT.equals(component);
+
+        // События MinIO пишет сам MinioService - там известны имя объекта и размер
+        RepositoryQueryEvent event = minio ? null : new RepositoryQueryEvent();
+        if (event != null) {
+            event.begin();
+        }
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = invocation.proceed();
+        } catch (Throwable e) {
+            timer(minio, component, operation, "error").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            commit(event, component, operation, invocation.getArguments(), -1, false);
+            throw e;
+        }
+        timer(minio, component, operation, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (minio) {
+            return countBytes(invocation.getArguments(), result);
+        }
+        int size = rowsOf(result);
+        commit(event, component, operation, invocation.getArguments(), size, true);
+        if (size >= 0) {
+            rows.computeIfAbsent(component + '.' + operation, key -> DistributionSummary.builder("blog.repository.rows")
+                    .description("Rows returned by repository call")
+                    .tag("component", component)
+                    .tag("operation", operation)
+                    .register(registry()))
+                    .record(size);
+        }
+        return result;
+    }
+
+    private static void commit(RepositoryQueryEvent event, String component, String operation,
+                               Object[] arguments, int rows, boolean success) {
+        // Пока запись JFR выключена, shouldCommit() - проверка флага, поля не заполняются
+        if (event != null && event.shouldCommit()) {
+            event.repository = component;
+            event.operation = operation;
+            event.searchShape = searchShape(arguments);
+            event.rows = rows;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private static String searchShape(Object[] arguments) {
+        if (arguments.length == 0) {
+            return null;
+        }
+        if (arguments[0] instanceof SearchQuery query) {
+            return query.shape();
+        }
+        if (arguments[0] instanceof String search) {
+            return SearchQuery.parse(search).shape();
+        }
+        return null;
+    }
+
+    private Timer timer(boolean minio, String component, String operation, String outcome) {
+        return timers.computeIfAbsent(component + '.' + operation + '.' + outcome, key ->
+                Timer.builder(minio ? "blog.minio.calls" : "blog.repository.calls")
+                        .description(minio ? "MinIO operation latency" : "Repository call latency")
+                        .tag("component", component)
+                        .tag("operation", operation)
+                        .tag("outcome", outcome)
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry()));
+    }
+
+    private Object countBytes(Object[] arguments, Object result) {
+        if (arguments.length > 0 && arguments[0] instanceof MultipartFile file) {
+            uploaded().increment(file.getSize());
+        } else if (arguments.length > 1 && arguments[1] instanceof byte[] content) {
+            uploaded().increment(content.length);
+        }
+        // Поток из MinIO читает вызывающий код - байты считаются по мере чтения
+        if (result instanceof InputStream stream) {
+            return new CountingInputStream(stream, downloaded());
+        }
+        return result;
+    }
+
+    // Размер результата, если это коллекция строк; -1 - результат не считается
+    private static int rowsOf(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        return -1;
+    }
+
+    // Реестр берется лениво: интерцептор создается вместе с постпроцессором бинов, раньше реестра метрик
+    private MeterRegistry registry() {
+        MeterRegistry current = registry;
+        if (current == null) {
+            current = registrySupplier.get();
+            registry = current;
+        }
+        return current;
+    }
+
+    private Counter uploaded() {
+        Counter counter = uploadedBytes;
+        if (counter == null) {
+            counter = bytesCounter("upload");
+            uploadedBytes = counter;
+        }
+        return counter;
+    }
+
+    private Counter downloaded() {
+        Counter counter = downloadedBytes;
+        if (counter == null) {
+            counter = bytesCounter("download");
+            downloadedBytes = counter;
+        }
+        return counter;
+    }
+
+    private Counter bytesCounter(String direction) {
+        return Counter.builder("blog.minio.bytes")
+                .description("Bytes streamed to and from MinIO")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .register(registry());
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                counter.increment();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                counter.increment(read);
+            }
+            return read;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package shm.yandex.practicum.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.StaticMethodMatcherPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import shm.yandex.practicum.repository.CommentRepository;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.service.MinioService;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Set;
+
+/**
+ * Метрики для Prometheus (GET /actuator/prometheus). Запросы к контроллерам измеряет сам Spring Boot
+ * (http.server.requests), вызовы репозиториев и MinIO оборачиваются в {@link BlogMetricsInterceptor}
+ */
+@Configuration
+public class MetricsConfig {
+
+    // Операции MinIO, которые ходят в хранилище; генерация имен и URL не измеряется
+    private static final Set<String> MINIO_OPERATIONS =
+            Set.of("uploadFile", "uploadBytes", "getFile", "deleteFile", "fileExists", "getFileMetadata", "getFileSize");
+
+    // static - постпроцессор бинов создается до остальных бинов конфигурации
+    @Bean
+    public static AbstractBeanFactoryAwareAdvisingPostProcessor blogMetricsPostProcessor(
+            ObjectProvider<MeterRegistry> meterRegistry,
+            @Value("${blog.metrics.enabled:true}") boolean enabled) {
+        return new BlogMetricsPostProcessor(new BlogMetricsInterceptor(
+                () -> meterRegistry.getIfAvailable(() -> Metrics.globalRegistry)), enabled);
+    }
+
+    static class BlogMetricsPostProcessor extends AbstractBeanFactoryAwareAdvisingPostProcessor {
+
+        private final boolean enabled;
+
+        BlogMetricsPostProcessor(BlogMetricsInterceptor interceptor, boolean enabled) {
+            this.enabled = enabled;
+            this.advisor = new DefaultPointcutAdvisor(new InstrumentedMethods(), interceptor);
+            // Время транзакции (@Transactional) входит в измерение
+            setBeforeExistingAdvisors(true);
+            setProxyTargetClass(true);
+        }
+
+        @Override
+        protected boolean isEligible(Class<?> targetClass) {
+            return enabled && super.isEligible(targetClass);
+        }
+    }
+
+    static class InstrumentedMethods extends StaticMethodMatcherPointcut {
+
+        InstrumentedMethods() {
+            setClassFilter(targetClass -> targetClass == JdbcNativePostRepository.class
+                    || targetClass == CommentRepository.class
+                    || targetClass == MinioService.class);
+        }
+
+        @Override
+        public boolean matches(Method method, Class<?> targetClass) {
+            if (!Modifier.isPublic(method.getModifiers()) || method.getDeclaringClass() == Object.class) {
+                return false;
+            }
+            return targetClass != MinioService.class || MINIO_OPERATIONS.contains(method.getName());
+        }
+    }
+}
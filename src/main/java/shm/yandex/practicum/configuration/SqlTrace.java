@@ -0,0 +1,206 @@
+package shm.yandex.practicum.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * SQL-запросы, выполненные в текущем потоке между {@link #begin(String)} и {@link #end()}:
+ * нормализованный текст, время выполнения и количество строк. Запросы записывает {@link TracingDataSource},
+ * HTTP-запросы оборачивает {@link SqlTraceConfig.SqlTraceFilter}.
+ * <p>
+ * В тестах: SqlTrace.capture(() -> mockMvc.perform(get("/api/posts"))).assertStatementsAtMost(3)
+ */
+public final class SqlTrace {
+
+    private static final ThreadLocal<SqlTrace> CURRENT = new ThreadLocal<>();
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String name;
+    private final SqlTrace parent;
+    private final List<Statement> statements = new ArrayList<>();
+
+    private SqlTrace(String name, SqlTrace parent) {
+        this.name = name;
+        this.parent = parent;
+    }
+
+    /**
+     * Начинает запись в текущем потоке. Вложенная запись не прерывает внешнюю - запросы попадают в обе
+     */
+    public static SqlTrace begin(String name) {
+        SqlTrace trace = new SqlTrace(name, CURRENT.get());
+        CURRENT.set(trace);
+        return trace;
+    }
+
+    public void end() {
+        if (parent != null) {
+            CURRENT.set(parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    static SqlTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Выполняет действие и возвращает запросы, которые оно сделало в этом потоке
+     */
+    public static SqlTrace capture(Action action) throws Exception {
+        SqlTrace trace = begin("capture");
+        try {
+            action.run();
+        } finally {
+            trace.end();
+        }
+        return trace;
+    }
+
+    void record(Statement statement) {
+        for (SqlTrace trace = this; trace != null; trace = trace.parent) {
+            trace.statements.add(statement);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Statement> getStatements() {
+        return Collections.unmodifiableList(statements);
+    }
+
+    public int count() {
+        return statements.size();
+    }
+
+    public long totalNanos() {
+        long total = 0;
+        for (Statement statement : statements) {
+            total += statement.getNanos();
+        }
+        return total;
+    }
+
+    /**
+     * Количество выполнений каждого нормализованного запроса, в порядке первого выполнения
+     */
+    public Map<String, Integer> countsBySql() {
+        // Один и тот же PreparedStatement повторяется дословно - каждый текст нормализуется один раз
+        Map<String, Integer> countsByRawSql = new LinkedHashMap<>();
+        for (Statement statement : statements) {
+            countsByRawSql.merge(statement.rawSql, 1, Integer::sum);
+        }
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        countsByRawSql.forEach((sql, count) -> counts.merge(normalize(sql), count, Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Запросы, выполненные больше threshold раз - признак N+1
+     */
+    public Map<String, Integer> repeatedMoreThan(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        countsBySql().forEach((sql, count) -> {
+            if (count > threshold) {
+                repeated.put(sql, count);
+            }
+        });
+        return repeated;
+    }
+
+    public SqlTrace assertStatementsAtMost(int max) {
+        if (count() > max) {
+            throw new AssertionError("Expected at most " + max + " SQL statements but " + count()
+                    + " were executed:\n" + describe());
+        }
+        return this;
+    }
+
+    public SqlTrace assertNoRepeatedStatements() {
+        Map<String, Integer> repeated = repeatedMoreThan(1);
+        if (!repeated.isEmpty()) {
+            throw new AssertionError("Expected each SQL statement to run once but got " + repeated
+                    + ":\n" + describe());
+        }
+        return this;
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        for (Statement statement : statements) {
+            sb.append("  ").append(statement).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Текст запроса без литералов и лишних пробелов, списки IN (?, ?, ...) сворачиваются в IN (...)
+     */
+    public static String normalize(String sql) {
+        if (sql == null) {
+            return "";
+        }
+        String normalized = STRING_LITERAL.matcher(sql).replaceAll("?");
+        normalized = NUMBER_LITERAL.matcher(normalized).replaceAll("?");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return IN_LIST.matcher(normalized).replaceAll("IN (...)");
+    }
+
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+
+    /**
+     * Выполненный запрос. Строки результата досчитываются по мере чтения ResultSet.
+     * Текст хранится как есть и нормализуется только при чтении
+     */
+    public static final class Statement {
+
+        private final String rawSql;
+        private final long nanos;
+        private long rows;
+        private String sql;
+
+        Statement(String rawSql, long nanos, long rows) {
+            this.rawSql = rawSql;
+            this.nanos = nanos;
+            this.rows = rows;
+        }
+
+        public String getSql() {
+            if (sql == null) {
+                sql = normalize(rawSql);
+            }
+            return sql;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        void addRows(long count) {
+            rows += count;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.2f ms, %d rows: %s", nanos / 1_000_000.0, rows, getSql());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package shm.yandex.practicum.configuration;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Трассировка SQL по HTTP-запросам: DataSource оборачивается в {@link TracingDataSource},
+ * фильтр собирает запросы каждого HTTP-запроса и предупреждает о повторяющихся (N+1).
+ * Журнал медленных запросов (blog.sql-trace.slow-query-log.enabled) включается отдельно:
+ * ему нужна только обертка DataSource, без записи запросов каждого HTTP-запроса
+ */
+@Configuration
+public class SqlTraceConfig {
+
+    @Bean
+    public static BeanPostProcessor tracingDataSourcePostProcessor(
+            @Value("${blog.sql-trace.enabled:false}") boolean enabled,
+            @Value("${blog.sql-trace.slow-query-log.enabled:false}") boolean slowQueryLog,
+            @Value("${blog.sql-trace.slow-query-ms:200}") long slowQueryMillis) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ((enabled || slowQueryLog) && bean instanceof DataSource dataSource
+                        && !(bean instanceof TracingDataSource)) {
+                    System.out.println("✓ SQL " + (enabled ? "tracing" : "slow query log") + " enabled for DataSource '"
+                            + beanName + "'");
+                    return new TracingDataSource(dataSource, slowQueryMillis);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public SqlTraceFilter sqlTraceFilter(@Value("${blog.sql-trace.enabled:false}") boolean enabled,
+                                         @Value("${blog.sql-trace.repeat-threshold:5}") int repeatThreshold) {
+        return new SqlTraceFilter(enabled, repeatThreshold);
+    }
+
+    public static class SqlTraceFilter extends OncePerRequestFilter {
+
+        private final boolean enabled;
+        private final int repeatThreshold;
+
+        public SqlTraceFilter(boolean enabled, int repeatThreshold) {
+            this.enabled = enabled;
+            this.repeatThreshold = repeatThreshold;
+        }
+
+        @Override
+        protected boolean shouldNotFilter(HttpServletRequest request) {
+            return !enabled;
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            SqlTrace trace = SqlTrace.begin(request.getMethod() + " " + request.getRequestURI());
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                trace.end();
+                report(trace);
+            }
+        }
+
+        private void report(SqlTrace trace) {
+            Map<String, Integer> repeated = trace.repeatedMoreThan(repeatThreshold);
+            repeated.forEach((sql, count) ->
+                    System.err.println("⚠ N+1 suspected in " + trace.getName() + ": " + count + " x " + sql));
+        }
+    }
+}
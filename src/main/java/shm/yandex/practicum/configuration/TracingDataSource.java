@@ -0,0 +1,180 @@
+package shm.yandex.practicum.configuration;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import shm.yandex.practicum.jfr.SqlStatementEvent;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource, который замеряет каждый выполненный запрос: пишет его в {@link SqlTrace} текущего потока
+ * (если запись идет) и в журнал медленных запросов. Текст запроса нормализуется (регулярные выражения)
+ * только для медленного запроса, события JFR и при чтении записи, а не на каждом выполнении,
+ * поэтому накладные расходы - прокси JDBC-объектов и два вызова System.nanoTime на запрос.
+ * При записи JFR каждый запрос пишется событием {@link SqlStatementEvent}
+ */
+public class TracingDataSource extends DelegatingDataSource {
+
+    private final long slowQueryNanos;
+
+    public TracingDataSource(DataSource target, long slowQueryMillis) {
+        super(target);
+        this.slowQueryNanos = slowQueryMillis * 1_000_000;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(Connection.class, obtainTargetDataSource().getConnection(), new ConnectionHandler());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(Connection.class, obtainTargetDataSource().getConnection(username, password), new ConnectionHandler());
+    }
+
+    private void afterExecute(String sql, long nanos, SqlTrace.Statement statement) {
+        if (nanos >= slowQueryNanos) {
+            System.err.printf("⚠ Slow SQL (%d ms): %s%n", nanos / 1_000_000, SqlTrace.normalize(sql));
+        }
+        SqlTrace trace = SqlTrace.current();
+        if (trace != null) {
+            trace.record(statement);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T wrap(Class<T> type, T target, TargetHandler handler) {
+        handler.target = target;
+        return (T) Proxy.newProxyInstance(TracingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private abstract static class TargetHandler implements InvocationHandler {
+
+        Object target;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            // Пулы и DataSourceUtils сравнивают соединения по ссылке - прокси равен только самому себе
+            return switch (method.getName()) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> handle(method, args);
+            };
+        }
+
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+    }
+
+    private class ConnectionHandler extends TargetHandler {
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = TracingDataSource.invoke(target, method, args);
+            return switch (method.getName()) {
+                case "prepareStatement" ->
+                        wrap(PreparedStatement.class, (PreparedStatement) result, new StatementHandler((String) args[0]));
+                case "createStatement" -> wrap(Statement.class, (Statement) result, new StatementHandler(null));
+                default -> result;
+            };
+        }
+    }
+
+    private class StatementHandler extends TargetHandler {
+
+        private final String preparedSql;
+        private SqlTrace.Statement last;
+
+        StatementHandler(String preparedSql) {
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = TracingDataSource.invoke(target, method, args);
+                if (name.equals("getResultSet") && result != null && last != null) {
+                    return wrap(ResultSet.class, (ResultSet) result, new ResultSetHandler(last));
+                }
+                return result;
+            }
+
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+            SqlStatementEvent event = new SqlStatementEvent();
+            event.begin();
+            long start = System.nanoTime();
+            Object result = TracingDataSource.invoke(target, method, args);
+            long nanos = System.nanoTime() - start;
+
+            long rows = affectedRows(result);
+            if (event.shouldCommit()) {
+                event.kind = SqlStatementEvent.kindOf(sql);
+                event.sql = SqlTrace.normalize(sql);
+                event.affectedRows = rows;
+                event.commit();
+            }
+            SqlTrace.Statement statement = new SqlTrace.Statement(sql, nanos, rows);
+            last = statement;
+            afterExecute(sql, nanos, statement);
+            if (result instanceof ResultSet resultSet) {
+                return wrap(ResultSet.class, resultSet, new ResultSetHandler(statement));
+            }
+            return result;
+        }
+
+        // Для INSERT/UPDATE/DELETE и пакетов - количество измененных строк; для SELECT строки считает ResultSet
+        private static long affectedRows(Object result) {
+            if (result instanceof Integer count) {
+                return Math.max(count, 0);
+            }
+            if (result instanceof Long count) {
+                return Math.max(count, 0);
+            }
+            long total = 0;
+            if (result instanceof int[] counts) {
+                for (int count : counts) {
+                    total += Math.max(count, 0);
+                }
+            } else if (result instanceof long[] counts) {
+                for (long count : counts) {
+                    total += Math.max(count, 0);
+                }
+            }
+            return total;
+        }
+    }
+
+    private static class ResultSetHandler extends TargetHandler {
+
+        private final SqlTrace.Statement statement;
+
+        ResultSetHandler(SqlTrace.Statement statement) {
+            this.statement = statement;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Object result = TracingDataSource.invoke(target, method, args);
+            if (Boolean.TRUE.equals(result) && method.getName().equals("next")) {
+                statement.addRows(1);
+            }
+            return result;
+        }
+    }
+}
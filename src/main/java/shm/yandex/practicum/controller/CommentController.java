@@ -4,6 +4,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.model.CommentsPage;
 import shm.yandex.practicum.service.CommentService;
 
 import java.util.ArrayList;
@@ -21,16 +22,23 @@ public class CommentController {
         this.commentService = commentService;
     }
 
-    // GET /api/posts/{postId}/comments - получение всех комментариев поста
+    // GET /api/posts/{postId}/comments - страница комментариев поста по курсору (limit, after, before).
+    // all=true - прежний ответ: все комментарии поста одним массивом
     @GetMapping
-    public ResponseEntity<List<Comment>> getCommentsByPostId(@PathVariable("postId") String postIdString) {
+    public ResponseEntity<?> getCommentsByPostId(
+            @PathVariable("postId") String postIdString,
+            @RequestParam(value = "limit", defaultValue = "" + CommentService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "before", required = false) Long before,
+            @RequestParam(value = "all", defaultValue = "false") boolean all) {
         try {
 
             // Заглушка для "undefined". Проблема Frontend
             if ("undefined".equalsIgnoreCase(postIdString)) {
                 System.err.println("Received 'undefined' as post ID. Check frontend.");
                 List<Comment> testComments = new ArrayList<>();
-                return ResponseEntity.ok(testComments);
+                return all ? ResponseEntity.ok(testComments)
+                        : ResponseEntity.ok(new CommentsPage(testComments, 0, false, false, null, null));
             }
 
             long postId;
@@ -41,8 +49,14 @@ public class CommentController {
                 return ResponseEntity.badRequest().body(Collections.emptyList());
             }
 
-            List<Comment> comments = commentService.getCommentsByPostId(postId);
-            return ResponseEntity.ok(comments);
+            if (all) {
+                List<Comment> comments = commentService.getCommentsByPostId(postId);
+                return ResponseEntity.ok(comments);
+            }
+
+            return ResponseEntity.ok(commentService.getCommentsPage(postId, after, before, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         } catch (Exception e) {
             System.err.println("Error getting comments: " + e.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Collections.emptyList());
@@ -0,0 +1,39 @@
+package shm.yandex.practicum.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.service.CommentService;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/comments")
+@CrossOrigin(origins = "http://localhost", allowCredentials = "true")
+public class CommentPreviewController {
+
+    private final CommentService commentService;
+
+    public CommentPreviewController(CommentService commentService) {
+        this.commentService = commentService;
+    }
+
+    // GET /api/comments?postIds=1,2,3&perPost=3 - первые комментарии сразу для нескольких постов
+    // (превью в ленте одним запросом вместо запроса на каждый пост). Ответ: id поста -> комментарии
+    @GetMapping
+    public ResponseEntity<?> getFirstComments(
+            @RequestParam("postIds") List<Long> postIds,
+            @RequestParam(value = "perPost", defaultValue = "" + CommentService.DEFAULT_PREVIEW_SIZE) int perPost) {
+        try {
+            Map<Long, List<Comment>> comments = commentService.getFirstCommentsByPostIds(postIds, perPost);
+            return ResponseEntity.ok(comments);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            System.err.println("Error getting comment previews: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+}
@@ -1,19 +1,32 @@
 package shm.yandex.practicum.controller;
 
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.jfr.RequestPhaseEvent;
 import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.ImageRenditionService;
 import shm.yandex.practicum.service.MinioService;
 import shm.yandex.practicum.service.PostService;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
 
 @RestController
 @RequestMapping("/api/posts/{id}/image")
@@ -22,11 +35,22 @@ public class ImageController {
 
     private final PostService postService;
     private final MinioService minioService;
-    private final Random random = new Random();
-
-    public ImageController(PostService postService, MinioService minioService) {
+    private final ImageDiskCache diskCache;
+    private final ImageMemoryCache memoryCache;
+    private final ImageRenditionService renditionService;
+    // Размер буфера копирования из MinIO в ответ: на запрос в памяти только он, а не весь файл
+    static final int STREAM_BUFFER_SIZE = 64 * 1024;
+    // Срок кэширования версионированного URL изображения
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+    public ImageController(PostService postService, MinioService minioService,
+                           ImageDiskCache diskCache, ImageMemoryCache memoryCache,
+                           ImageRenditionService renditionService) {
         this.postService = postService;
         this.minioService = minioService;
+        this.diskCache = diskCache;
+        this.memoryCache = memoryCache;
+        this.renditionService = renditionService;
     }
 
     // /api/posts/{id}/image - загрузка изображения поста
@@ -60,10 +84,13 @@ public class ImageController {
                 } catch (Exception e) {
                     System.err.println("Warning: Could not delete old file: " + e.getMessage());
                 }
+                renditionService.delete(post.getImageFileName());
             }
 
             post.setImageFileName(savedFileName);
             postService.update(post);
+            // Уменьшенные копии строятся в фоне, ответ их не ждет
+            renditionService.generate(savedFileName);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -92,29 +119,256 @@ public class ImageController {
         }
     }
 
-    // GET  /api/posts/{id}/image - получение изображения поста
+    // GET  /api/posts/{id}/image - получение изображения поста (поддерживается Range: bytes=start-end).
+    // Имя файла в MinIO содержит время загрузки и не переиспользуется, поэтому оно и есть ETag:
+    // на If-None-Match с тем же именем отвечаем 304, не обращаясь к MinIO.
+    // URL с ?v=<имя файла> версионирован - такой ответ кэшируется как immutable.
+    // ?size=thumb|card|full - уменьшенная копия; пока она строится, отдается оригинал
     @GetMapping
-    public ResponseEntity<byte[]> getImage(@PathVariable("id") Long postId) {
+    public ResponseEntity<StreamingResponseBody> getImage(
+            @PathVariable("id") Long postId,
+            @RequestParam(value = "v", required = false) String version,
+            @RequestParam(value = "size", required = false) String imageSize,
+            @RequestHeader HttpHeaders requestHeaders) {
+        // Изображение из памяти и локальная копия переходят к телу ответа, только если ответ собран;
+        // при ошибке до этого их освобождает catch
+        ImageMemoryCache.CachedImage image = null;
+        FileChannel cached = null;
         try {
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getImage", "load-post");
             Post post = postService.findById(postId);
+            phase.finish();
             if (post == null || post.getImageFileName() == null) {
-                return generateFallbackImage(postId);
+                return generateFallbackImage(postId, requestHeaders);
             }
 
-            try (InputStream inputStream = minioService.getFile(post.getImageFileName())) {
-                byte[] bytes = inputStream.readAllBytes();
-                String contentType = determineContentType(post.getImageFileName());
+            String originalFileName = post.getImageFileName();
+            String fileName = imageSize != null
+                    ? renditionService.resolve(originalFileName, imageSize)
+                    : originalFileName;
+            // Оригинал вместо еще не построенной копии - временный ответ: его нельзя кэшировать как immutable,
+            // и без Last-Modified браузер перепроверит его только по ETag
+            boolean substitute = imageSize != null && fileName.equals(originalFileName);
+            String etag = etagOf(fileName);
+            // Без версии в URL изображение поста может смениться - браузер перепроверяет его по ETag
+            CacheControl cacheControl = originalFileName.equals(version) && !substitute
+                    ? CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePublic().immutable()
+                    : CacheControl.noCache();
+            HttpHeaders cacheHeaders = cacheHeaders(etag, cacheControl,
+                    substitute ? -1 : MinioService.parseUploadTime(originalFileName));
+            if (isNotModified(requestHeaders, cacheHeaders)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(cacheHeaders).build();
+            }
 
-                return ResponseEntity.ok()
-                        .contentType(MediaType.parseMediaType(contentType))
-                        .header(HttpHeaders.CONTENT_DISPOSITION,
-                                "inline; filename=\"" + post.getImageFileName() + "\"")
-                        .body(bytes);
+            // Кэши проверяются по порядку: память вне кучи, диск, MinIO. При попадании в кэш
+            // размер берется из него, и MinIO не вызывается
+            image = memoryCache.isEnabled() ? memoryCache.get(fileName) : null;
+            long size;
+            if (image != null) {
+                size = image.length();
+            } else if (diskCache.isEnabled()) {
+                phase = RequestPhaseEvent.start("getImage", "disk-cache");
+                cached = diskCache.open(fileName, () -> minioService.getFile(fileName));
+                phase.finish();
+                size = cached.size();
+            } else {
+                phase = RequestPhaseEvent.start("getImage", "stat-object");
+                size = minioService.getFileSize(fileName);
+                phase.finish();
+            }
+            if (image == null && memoryCache.admits(size)) {
+                image = loadIntoMemory(fileName, size, cached);
+                if (image != null) {
+                    // Локальную копию уже прочитал и закрыл кэш в памяти
+                    cached = null;
+                }
             }
 
+            ResponseEntity.BodyBuilder response;
+            StreamingResponseBody body;
+            long contentLength;
+            HttpRange range = parseSingleRange(requestHeaders.getFirst(HttpHeaders.RANGE));
+            if (range == null) {
+                response = ResponseEntity.ok();
+                body = image != null ? writeCached(image, 0, size)
+                        : cached != null ? transferFile(cached, 0, size)
+                        : streamObject(fileName, -1, -1);
+                contentLength = size;
+            } else {
+                long start;
+                long end;
+                try {
+                    start = range.getRangeStart(size);
+                    end = range.getRangeEnd(size);
+                } catch (IllegalArgumentException e) {
+                    release(image, cached);
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                            .header(HttpHeaders.CONTENT_RANGE, "bytes */" + size)
+                            .build();
+                }
+                contentLength = end - start + 1;
+                response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + size);
+                body = image != null ? writeCached(image, start, contentLength)
+                        : cached != null ? transferFile(cached, start, contentLength)
+                        : streamObject(fileName, start, contentLength);
+            }
+
+            return response
+                    .headers(cacheHeaders)
+                    .contentType(MediaType.parseMediaType(determineContentType(fileName)))
+                    .contentLength(contentLength)
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + fileName + "\"")
+                    .body(body);
+
         } catch (Exception e) {
             System.err.println("Error getting image: " + e.getMessage());
-            return generateFallbackImage(postId);
+            release(image, cached);
+            return generateFallbackImage(postId, requestHeaders);
+        }
+    }
+
+    private static void release(ImageMemoryCache.CachedImage image, FileChannel cached) {
+        if (image != null) {
+            image.release();
+        }
+        if (cached != null) {
+            try {
+                cached.close();
+            } catch (IOException e) {
+                System.err.println("Warning: Could not close cached image: " + e.getMessage());
+            }
+        }
+    }
+
+    // Строгий ETag из имени файла; символы, недопустимые в ETag, заменяются
+    private static String etagOf(String fileName) {
+        return "\"" + fileName.replaceAll("[^A-Za-z0-9._-]", "_") + "\"";
+    }
+
+    private static HttpHeaders cacheHeaders(String etag, CacheControl cacheControl, long lastModified) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(etag);
+        headers.setCacheControl(cacheControl);
+        if (lastModified >= 0) {
+            headers.setLastModified(lastModified);
+        }
+        return headers;
+    }
+
+    // If-None-Match важнее If-Modified-Since; для GET сравнение ETag слабое (RFC 9110)
+    private static boolean isNotModified(HttpHeaders requestHeaders, HttpHeaders cacheHeaders) {
+        try {
+            List<String> ifNoneMatch = requestHeaders.getIfNoneMatch();
+            if (!ifNoneMatch.isEmpty()) {
+                String etag = cacheHeaders.getETag();
+                for (String candidate : ifNoneMatch) {
+                    String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+                    if (tag.equals("*") || tag.equals(etag)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            long ifModifiedSince = requestHeaders.getIfModifiedSince();
+            long lastModified = cacheHeaders.getLastModified();
+            return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            // Некорректные условные заголовки игнорируются
+            return false;
+        }
+    }
+
+    // Копирует объект из MinIO в ответ через буфер фиксированного размера; offset = -1 - объект целиком
+    private StreamingResponseBody streamObject(String fileName, long offset, long length) {
+        return out -> {
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getImage", "stream-object");
+            try (InputStream in = offset < 0
+                    ? minioService.getFile(fileName)
+                    : minioService.getFile(fileName, offset, length)) {
+                byte[] buffer = new byte[STREAM_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Failed to stream image " + fileName, e);
+            } finally {
+                phase.finish();
+            }
+        };
+    }
+
+    // Небольшое изображение читается в кэш в памяти из локальной копии или, без дискового кэша, из MinIO.
+    // Локальная копия закрыта, если изображение загружено или загрузка не удалась; открыта - если вернулся null
+    private ImageMemoryCache.CachedImage loadIntoMemory(String fileName, long size, FileChannel cached) throws Exception {
+        RequestPhaseEvent phase = RequestPhaseEvent.start("getImage", "memory-cache-load");
+        try {
+            return memoryCache.load(fileName, size, () -> cached != null
+                    ? cached
+                    : Channels.newChannel(minioService.getFile(fileName)));
+        } catch (Exception e) {
+            // load закрывает уже открытый источник сам; здесь - на случай ошибки до его открытия
+            if (cached != null) {
+                cached.close();
+            }
+            throw e;
+        } finally {
+            phase.finish();
+        }
+    }
+
+    // Отдает часть изображения из кэша в памяти; ссылка на изображение освобождается после записи
+    private StreamingResponseBody writeCached(ImageMemoryCache.CachedImage image, long offset, long length) {
+        return out -> {
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getImage", "stream-memory");
+            try {
+                image.writeTo(out, offset, length);
+            } finally {
+                image.release();
+                phase.finish();
+            }
+        };
+    }
+
+    // Отдает часть файла из дискового кэша через FileChannel.transferTo, без копирования в буфер кучи.
+    // Канал закрывается после записи
+    private StreamingResponseBody transferFile(FileChannel channel, long offset, long length) {
+        return out -> {
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getImage", "stream-disk");
+            long remaining = length;
+            try (FileChannel source = channel) {
+                WritableByteChannel target = Channels.newChannel(out);
+                long position = offset;
+                while (remaining > 0) {
+                    long transferred = source.transferTo(position, remaining, target);
+                    if (transferred <= 0) {
+                        break;
+                    }
+                    position += transferred;
+                    remaining -= transferred;
+                }
+            } finally {
+                diskCache.recordServed(length - remaining);
+                phase.finish();
+            }
+        };
+    }
+
+    // Один диапазон байт из заголовка Range. Несколько диапазонов и некорректный заголовок
+    // игнорируются - отдается весь файл, как допускает RFC 9110
+    private static HttpRange parseSingleRange(String rangeHeader) {
+        if (rangeHeader == null || rangeHeader.isBlank()) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+            return ranges.size() == 1 ? ranges.getFirst() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
@@ -136,6 +390,7 @@ public class ImageController {
                 } catch (Exception e) {
                     response.put("warning", "File not found in MinIO: " + e.getMessage());
                 }
+                renditionService.delete(post.getImageFileName());
                 post.setImageFileName(null);
                 postService.update(post);
             } else {
@@ -156,8 +411,15 @@ public class ImageController {
         }
     }
 
-    // генерация изображения по умолчанию
-    private ResponseEntity<byte[]> generateFallbackImage(Long postId) {
+    // генерация изображения по умолчанию: цвет зависит только от id поста, поэтому заглушку можно кэшировать.
+    // У поста позже может появиться изображение - заглушка всегда перепроверяется по ETag
+    private ResponseEntity<StreamingResponseBody> generateFallbackImage(Long postId, HttpHeaders requestHeaders) {
+        HttpHeaders cacheHeaders = cacheHeaders("\"post-" + postId + "-placeholder\"", CacheControl.noCache(), -1);
+        if (isNotModified(requestHeaders, cacheHeaders)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(cacheHeaders).build();
+        }
+
+        RequestPhaseEvent phase = RequestPhaseEvent.start("getImage", "fallback");
         try {
             String svg = String.format(
                     "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"400\" height=\"200\">" +
@@ -167,21 +429,31 @@ public class ImageController {
                             "Post %d" +
                             "</text>" +
                             "</svg>",
-                    random.nextInt(0xFFFFFF),
+                    placeholderColor(postId),
                     postId
             );
 
+            byte[] bytes = svg.getBytes(StandardCharsets.UTF_8);
             return ResponseEntity.ok()
+                    .headers(cacheHeaders)
                     .contentType(MediaType.valueOf("image/svg+xml"))
+                    .contentLength(bytes.length)
                     .header(HttpHeaders.CONTENT_DISPOSITION,
                             "inline; filename=\"post-" + postId + ".svg\"")
-                    .body(svg.getBytes());
+                    .body(out -> out.write(bytes));
 
         } catch (Exception e) {
             return ResponseEntity.notFound().build();
+        } finally {
+            phase.finish();
         }
     }
 
+    // Цвет заглушки из id поста: перемешивание битов, чтобы соседние посты различались
+    private static int placeholderColor(Long postId) {
+        return Long.hashCode(postId * 0x9E3779B97F4A7C15L) & 0xFFFFFF;
+    }
+
     // Формируем content type по расширению файла
     private String determineContentType(String fileName) {
         if (fileName == null) {
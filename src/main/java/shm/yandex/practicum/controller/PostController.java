@@ -1,13 +1,24 @@
 package shm.yandex.practicum.controller;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.jfr.RequestPhaseEvent;
+import shm.yandex.practicum.model.ImportReport;
+import shm.yandex.practicum.model.PageCacheStats;
 import shm.yandex.practicum.model.Post;
 import shm.yandex.practicum.model.PostsPage;
+import shm.yandex.practicum.service.PostExportService;
+import shm.yandex.practicum.service.PostImportService;
 import shm.yandex.practicum.service.PostService;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 @RestController
 @RequestMapping("/api/posts")
 
@@ -16,9 +27,14 @@ import shm.yandex.practicum.service.PostService;
 public class PostController {
 
     private final PostService postService;
+    private final PostImportService postImportService;
+    private final PostExportService postExportService;
 
-    public PostController(PostService postService) {
+    public PostController(PostService postService, PostImportService postImportService,
+                          PostExportService postExportService) {
         this.postService = postService;
+        this.postImportService = postImportService;
+        this.postExportService = postExportService;
     }
 
     // GET /api/posts - получение списка постов
@@ -26,9 +42,63 @@ public class PostController {
     public PostsPage getPosts(
             @RequestParam(value = "search", defaultValue = "") String search,
             @RequestParam(value = "pageNumber", defaultValue = "1") int pageNumber,
-            @RequestParam(value = "pageSize", defaultValue = "10") int pageSize) {
+            @RequestParam(value = "pageSize", defaultValue = "10") int pageSize,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "estimateTotal", defaultValue = "false") boolean estimateTotal,
+            @RequestParam(value = "mode", defaultValue = "") String mode) {
+
+        // mode=fulltext - ранжированный поиск по заголовку и тексту поста
+        if ("fulltext".equalsIgnoreCase(mode)) {
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getPosts", "fulltext");
+            try {
+                return postService.findPostsByFullText(search, pageNumber, pageSize);
+            } finally {
+                phase.finish();
+            }
+        }
+
+        // Режим keyset-пагинации включается параметром cursor (пустое значение - первая страница)
+        if (cursor != null) {
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getPosts", "cursor");
+            try {
+                return postService.findPostsBySearchWithCursor(search, cursor, pageSize);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            } finally {
+                phase.finish();
+            }
+        }
+
+        RequestPhaseEvent phase = RequestPhaseEvent.start("getPosts", "pagination");
+        try {
+            return postService.findPostsBySearchWithPagination(search, pageNumber, pageSize, estimateTotal);
+        } finally {
+            phase.finish();
+        }
+    }
+
+    // GET /api/posts/cache/stats - статистика кэша страниц ленты
+    @GetMapping("/cache/stats")
+    public PageCacheStats getPageCacheStats() {
+        return postService.getPageCacheStats();
+    }
+
+    // POST /api/posts/import - потоковый импорт постов из NDJSON (одна строка - один пост с тегами и комментариями)
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE})
+    public ImportReport importPosts(
+            InputStream body,
+            @RequestParam(value = "batchSize", defaultValue = "0") int batchSize) throws IOException {
+        // batchSize = 0 - размер пачки из настроек
+        return postImportService.importPosts(body, batchSize);
+    }
 
-        return postService.findPostsBySearchWithPagination(search, pageNumber, pageSize);
+    // GET /api/posts/export - выгрузка всех постов с тегами и комментариями в NDJSON (формат импорта)
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportPosts() {
+        StreamingResponseBody body = postExportService::exportPosts;
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"posts.ndjson\"")
+                .body(body);
     }
 
     // GET /api/posts/{id} - получение поста по id
@@ -111,19 +181,12 @@ public class PostController {
     @PostMapping("/{id}/likes")
     public ResponseEntity<Post> likePost(@PathVariable("id") Long id) {
         try {
-            Post post = postService.findById(id);
+            // Лайк копится в памяти и пишется в БД пакетом, без запроса на каждый клик
+            Post post = postService.like(id);
             if (post == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            Integer currentLikes = post.getLikesCount();
-            if (currentLikes == null) {
-                currentLikes = 0;
-            }
-            post.setLikesCount(currentLikes + 1);
-
-            postService.update(post);
-
             return ResponseEntity.ok(post);
         } catch (Exception e) {
             System.err.println("Error liking post: " + e.getMessage());
@@ -0,0 +1,49 @@
+package shm.yandex.practicum.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Операция с объектом в MinIO: загрузка, чтение, удаление, stat
+ */
+@Name("shm.yandex.practicum.MinioOperation")
+@Label("MinIO Operation")
+@Category({"Blog", "MinIO"})
+@Description("Object storage call")
+@StackTrace(false)
+public class MinioOperationEvent extends Event {
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Object Name")
+    public String objectName;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Success")
+    public boolean success;
+
+    public static MinioOperationEvent start(String operation, String objectName) {
+        MinioOperationEvent event = new MinioOperationEvent();
+        event.begin();
+        event.operation = operation;
+        event.objectName = objectName;
+        return event;
+    }
+
+    public void finish(long bytes, boolean success) {
+        if (shouldCommit()) {
+            this.bytes = bytes;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package shm.yandex.practicum.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Вызов метода репозитория: операция, форма поискового запроса и количество строк в ответе.
+ * SQL-запросы внутри вызова видны отдельными событиями {@link SqlStatementEvent} того же потока
+ */
+@Name("shm.yandex.practicum.RepositoryQuery")
+@Label("Repository Query")
+@Category({"Blog", "Database"})
+@Description("Repository method call with search shape and returned rows")
+@StackTrace(false)
+public class RepositoryQueryEvent extends Event {
+
+    @Label("Repository")
+    public String repository;
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Search Shape")
+    @Description("Parts of the search string: title, tags, anyOf, excluded; all - no filter")
+    public String searchShape;
+
+    @Label("Rows")
+    public int rows;
+
+    @Label("Success")
+    public boolean success;
+}
@@ -0,0 +1,39 @@
+package shm.yandex.practicum.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Этап обработки запроса в контроллере (загрузка поста, чтение файла, поиск и т. п.)
+ */
+@Name("shm.yandex.practicum.RequestPhase")
+@Label("Request Phase")
+@Category({"Blog", "HTTP"})
+@Description("Phase of a controller request")
+@StackTrace(false)
+public class RequestPhaseEvent extends Event {
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Phase")
+    public String phase;
+
+    public static RequestPhaseEvent start(String endpoint, String phase) {
+        RequestPhaseEvent event = new RequestPhaseEvent();
+        event.begin();
+        event.endpoint = endpoint;
+        event.phase = phase;
+        return event;
+    }
+
+    public void finish() {
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
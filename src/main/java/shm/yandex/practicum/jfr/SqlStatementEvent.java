@@ -0,0 +1,47 @@
+package shm.yandex.practicum.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Выполнение одного SQL-запроса (без чтения результата)
+ */
+@Name("shm.yandex.practicum.SqlStatement")
+@Label("SQL Statement")
+@Category({"Blog", "Database"})
+@Description("Execution of a single JDBC statement")
+@StackTrace(false)
+public class SqlStatementEvent extends Event {
+
+    @Label("Kind")
+    @Description("SELECT, INSERT, UPDATE, DELETE, MERGE, ...")
+    public String kind;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Affected Rows")
+    public long affectedRows;
+
+    /**
+     * Первое слово запроса в верхнем регистре
+     */
+    public static String kindOf(String sql) {
+        if (sql == null) {
+            return "BATCH";
+        }
+        int start = 0;
+        while (start < sql.length() && !Character.isLetter(sql.charAt(start))) {
+            start++;
+        }
+        int end = start;
+        while (end < sql.length() && Character.isLetter(sql.charAt(end))) {
+            end++;
+        }
+        return start == end ? "OTHER" : sql.substring(start, end).toUpperCase();
+    }
+}
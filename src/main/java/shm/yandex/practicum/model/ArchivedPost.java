@@ -0,0 +1,26 @@
+package shm.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Пост в архивном формате NDJSON (одна строка - один пост) вместе с тегами и текстами комментариев
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedPost {
+    private Long id;
+    private String title;
+    private String text;
+    private List<String> tags = new ArrayList<>();
+    private Integer likesCount;
+    private String imageFileName;
+    private List<String> comments = new ArrayList<>();
+}
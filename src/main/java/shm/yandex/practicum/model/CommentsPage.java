@@ -0,0 +1,26 @@
+package shm.yandex.practicum.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница комментариев поста в порядке id (от старых к новым) для курсорной пагинации.
+ * total - количество комментариев поста из posts.comments_count
+ */
+@Getter
+@AllArgsConstructor
+public class CommentsPage {
+    private final List<Comment> comments;
+    private final int total;
+    private final boolean hasPrev;
+    private final boolean hasNext;
+
+    // id для следующего запроса: ?after=nextCursor или ?before=prevCursor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Long prevCursor;
+}
@@ -0,0 +1,20 @@
+package shm.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Результат записи одной пачки импорта: строки входного потока [firstLine .. lastLine]
+ */
+@Getter
+@AllArgsConstructor
+public class ImportBatch {
+    private final int number;
+    private final long firstLine;
+    private final long lastLine;
+    private final int imported;
+    private final int comments;
+    private final long elapsedMs;
+    // null - пачка записана, иначе причина отката всей пачки
+    private final String error;
+}
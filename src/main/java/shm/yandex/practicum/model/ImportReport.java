@@ -0,0 +1,24 @@
+package shm.yandex.practicum.model;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог импорта постов: прогресс по пачкам и строки, которые не удалось разобрать
+ */
+@Getter
+@Setter
+public class ImportReport {
+    private long lines;
+    private long imported;
+    private long comments;
+    private long failed;
+    private long elapsedMs;
+    private double postsPerSecond;
+    private List<ImportBatch> batches = new ArrayList<>();
+    // "строка N: причина" для некорректных строк
+    private List<String> errors = new ArrayList<>();
+}
@@ -0,0 +1,19 @@
+package shm.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Статистика кэша страниц ленты
+ */
+@Getter
+@AllArgsConstructor
+public class PageCacheStats {
+    private final boolean enabled;
+    private final long hitCount;
+    private final long missCount;
+    private final double hitRate;
+    private final long evictionCount;
+    private final long evictionWeight;
+    private final long size;
+}
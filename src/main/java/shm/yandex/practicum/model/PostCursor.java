@@ -0,0 +1,52 @@
+package shm.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в ленте постов для keyset-пагинации.
+ * Лента упорядочена по (likes_count DESC, id), поэтому курсор хранит пару (likesCount, id)
+ * последнего (или первого) поста страницы и направление перехода
+ */
+@Getter
+@AllArgsConstructor
+public class PostCursor {
+    private final int likesCount;
+    private final long id;
+    private final boolean backward;
+
+    public static PostCursor after(Post post) {
+        return new PostCursor(post.getLikesCount() != null ? post.getLikesCount() : 0, post.getId(), false);
+    }
+
+    public static PostCursor before(Post post) {
+        return new PostCursor(post.getLikesCount() != null ? post.getLikesCount() : 0, post.getId(), true);
+    }
+
+    /**
+     * Кодирует курсор в непрозрачную строку для клиента
+     */
+    public String encode() {
+        String raw = (backward ? "p" : "n") + ":" + likesCount + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает курсор, полученный от клиента
+     */
+    public static PostCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":");
+            if (parts.length != 3 || !(parts[0].equals("n") || parts[0].equals("p"))) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            return new PostCursor(Integer.parseInt(parts[1]), Long.parseLong(parts[2]), parts[0].equals("p"));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+}
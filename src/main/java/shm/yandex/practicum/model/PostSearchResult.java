@@ -0,0 +1,18 @@
+package shm.yandex.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Страница результатов поиска вместе с общим количеством найденных постов
+ */
+@Getter
+@AllArgsConstructor
+public class PostSearchResult {
+    private final List<Post> posts;
+    // null, если точный подсчет был пропущен (режим оценки)
+    private final Integer total;
+    private final boolean hasNext;
+}
@@ -1,5 +1,6 @@
 package shm.yandex.practicum.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -16,4 +17,17 @@ public class PostsPage {
     private Boolean hasPrev;
     private Boolean hasNext;
     private Integer lastPage;
+
+    // Курсоры заполняются только в режиме keyset-пагинации
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String prevCursor;
+
+    public PostsPage(List<Post> posts, Boolean hasPrev, Boolean hasNext, Integer lastPage) {
+        this.posts = posts;
+        this.hasPrev = hasPrev;
+        this.hasNext = hasNext;
+        this.lastPage = lastPage;
+    }
 }
@@ -0,0 +1,116 @@
+package shm.yandex.practicum.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разобранная строка поиска: слова с '#' - теги, остальные слова - подстрока заголовка.
+ * Теги: #a - обязательный, #a|b - хотя бы один из, -#a - исключенный
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class SearchQuery {
+
+    // Подстрока короче этой длины совпадает с большей частью постов
+    private static final int BROAD_SUBSTRING_LENGTH = 3;
+
+    private final List<String> tags;
+    private final List<List<String>> anyOfTags;
+    private final List<String> excludedTags;
+    private final List<String> words;
+
+    private SearchQuery(List<String> tags, List<List<String>> anyOfTags, List<String> excludedTags, List<String> words) {
+        this.tags = List.copyOf(tags);
+        this.anyOfTags = List.copyOf(anyOfTags);
+        this.excludedTags = List.copyOf(excludedTags);
+        this.words = List.copyOf(words);
+    }
+
+    public static SearchQuery parse(String search) {
+        List<String> tags = new ArrayList<>();
+        List<List<String>> anyOfTags = new ArrayList<>();
+        List<String> excludedTags = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+
+        if (search != null && !search.trim().isEmpty()) {
+            String[] parts = search.trim().split("\\s+");
+
+            for (String part : parts) {
+                if (part.isEmpty()) continue;
+
+                if (part.startsWith("-#")) {
+                    // Исключенный тэг
+                    String tag = part.substring(2).toLowerCase();
+                    if (!tag.isEmpty()) {
+                        excludedTags.add(tag);
+                    }
+                } else if (part.startsWith("#")) {
+                    // Тэг или группа тэгов через '|'
+                    List<String> group = new ArrayList<>();
+                    for (String alternative : part.substring(1).toLowerCase().split("\\|")) {
+                        String tag = alternative.startsWith("#") ? alternative.substring(1) : alternative;
+                        if (!tag.isEmpty() && !group.contains(tag)) {
+                            group.add(tag);
+                        }
+                    }
+                    if (group.size() == 1) {
+                        tags.add(group.getFirst());
+                    } else if (group.size() > 1) {
+                        anyOfTags.add(group);
+                    }
+                } else {
+                    // Слово
+                    words.add(part.toLowerCase());
+                }
+            }
+        }
+
+        return new SearchQuery(tags, anyOfTags, excludedTags, words);
+    }
+
+    /**
+     * Обычные слова, объединенные в подстроку для поиска по заголовку
+     */
+    public String getTitleSubstring() {
+        return String.join(" ", words);
+    }
+
+    /**
+     * Тот же поиск без слов - только фильтр по тегам
+     */
+    public SearchQuery tagsOnly() {
+        return new SearchQuery(tags, anyOfTags, excludedTags, List.of());
+    }
+
+    public boolean hasTagFilter() {
+        return !tags.isEmpty() || !anyOfTags.isEmpty() || !excludedTags.isEmpty();
+    }
+
+    public boolean isEmpty() {
+        return !hasTagFilter() && words.isEmpty();
+    }
+
+    /**
+     * Из каких частей состоит поиск, без самих слов и тегов: title+tags+anyOf+excluded, all - без фильтра
+     */
+    public String shape() {
+        List<String> parts = new ArrayList<>(4);
+        if (!words.isEmpty()) parts.add("title");
+        if (!tags.isEmpty()) parts.add("tags");
+        if (!anyOfTags.isEmpty()) parts.add("anyOf");
+        if (!excludedTags.isEmpty()) parts.add("excluded");
+        return parts.isEmpty() ? "all" : String.join("+", parts);
+    }
+
+    /**
+     * Поиск без обязательных тегов и с короткой подстрокой (или без нее) выбирает почти всю таблицу
+     */
+    public boolean isBroad() {
+        return tags.isEmpty() && anyOfTags.isEmpty() && getTitleSubstring().length() < BROAD_SUBSTRING_LENGTH;
+    }
+}
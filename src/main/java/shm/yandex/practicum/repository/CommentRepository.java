@@ -4,10 +4,13 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import shm.yandex.practicum.model.Comment;
 
 import java.sql.PreparedStatement;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 @Repository
@@ -37,7 +40,7 @@ public class CommentRepository {
                 SELECT id, text, post_id 
                 FROM comments 
                 WHERE post_id = ? 
-                ORDER BY post_id DESC
+                ORDER BY id
                 """;
 
         return jdbcTemplate.query(sql, (rs, rowNum) -> new Comment(
@@ -47,6 +50,85 @@ public class CommentRepository {
         ), postId);
     }
 
+    /**
+     * Страница комментариев поста по id (индекс comments(post_id, id)).
+     * afterId - комментарии с id больше курсора по возрастанию,
+     * beforeId - с id меньше курсора, ближайшие к нему (по убыванию id).
+     * Без курсоров - первые комментарии поста. Возвращает не больше limit строк
+     */
+    public List<Comment> findPageByPostId(Long postId, Long afterId, Long beforeId, int limit) {
+        String sql;
+        Object[] params;
+        if (beforeId != null) {
+            sql = """
+                    SELECT id, text, post_id
+                    FROM comments
+                    WHERE post_id = ? AND id < ?
+                    ORDER BY id DESC
+                    LIMIT ?
+                    """;
+            params = new Object[]{postId, beforeId, limit};
+        } else {
+            sql = """
+                    SELECT id, text, post_id
+                    FROM comments
+                    WHERE post_id = ? AND id > ?
+                    ORDER BY id
+                    LIMIT ?
+                    """;
+            params = new Object[]{postId, afterId != null ? afterId : 0L, limit};
+        }
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Comment(
+                rs.getLong("id"),
+                rs.getString("text"),
+                rs.getLong("post_id")
+        ), params);
+    }
+
+    /**
+     * Первые perPost комментариев (по id) каждого из постов одним запросом с оконной функцией.
+     * Результат упорядочен по (post_id, id)
+     */
+    public List<Comment> findFirstByPostIds(List<Long> postIds, int perPost) {
+        if (postIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = """
+                SELECT id, text, post_id
+                FROM (
+                    SELECT id, text, post_id,
+                           ROW_NUMBER() OVER (PARTITION BY post_id ORDER BY id) AS rn
+                    FROM comments
+                    WHERE post_id IN (%s)
+                ) ranked
+                WHERE rn <= ?
+                ORDER BY post_id, id
+                """.formatted(String.join(", ", Collections.nCopies(postIds.size(), "?")));
+
+        List<Object> params = new ArrayList<>(postIds);
+        params.add(perPost);
+        return jdbcTemplate.query(sql, (rs, rowNum) -> new Comment(
+                rs.getLong("id"),
+                rs.getString("text"),
+                rs.getLong("post_id")
+        ), params.toArray());
+    }
+
+    /**
+     * Количество комментариев поста из денормализованного posts.comments_count. null - поста нет
+     */
+    public Integer findCommentsCount(Long postId) {
+        List<Integer> counts = jdbcTemplate.queryForList(
+                "SELECT comments_count FROM posts WHERE id = ?", Integer.class, postId);
+        return counts.isEmpty() ? null : counts.getFirst();
+    }
+
+    /**
+     * Добавляет комментарий и в той же транзакции увеличивает posts.comments_count
+     */
+    @Transactional
     public Comment save(Comment comment) {
         String sql = """
                 INSERT INTO comments (text, post_id) 
@@ -79,11 +161,45 @@ public class CommentRepository {
             }
         }
 
+        jdbcTemplate.update("UPDATE posts SET comments_count = comments_count + 1 WHERE id = ?", comment.getPostId());
+
         return comment;
     }
 
+    /**
+     * Удаляет комментарий и в той же транзакции уменьшает posts.comments_count.
+     * Счетчик меняется, только если строка действительно удалена (повторное удаление его не трогает)
+     */
+    @Transactional
     public void delete(Long id) {
-        jdbcTemplate.update("DELETE FROM comments WHERE id = ?", id);
+        List<Long> postIds = jdbcTemplate.queryForList("SELECT post_id FROM comments WHERE id = ?", Long.class, id);
+        if (postIds.isEmpty()) {
+            return;
+        }
+
+        int deleted = jdbcTemplate.update("DELETE FROM comments WHERE id = ?", id);
+        if (deleted > 0) {
+            jdbcTemplate.update("UPDATE posts SET comments_count = comments_count - 1 WHERE id = ?", postIds.getFirst());
+        }
+    }
+
+    /**
+     * Пересчитывает comments_count для постов с id в диапазоне [fromId, toId].
+     * Обновляются только строки с расхождением. Возвращает количество исправленных постов
+     */
+    public int recalculateCommentsCount(long fromId, long toId) {
+        String sql = """
+                UPDATE posts p
+                SET comments_count = (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id)
+                WHERE p.id BETWEEN ? AND ?
+                  AND p.comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id)
+                """;
+        return jdbcTemplate.update(sql, fromId, toId);
+    }
+
+    public long findMaxPostId() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM posts", Long.class);
+        return maxId != null ? maxId : 0;
     }
 
     public Comment findById(Long commentId) {
@@ -0,0 +1,257 @@
+package shm.yandex.practicum.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import shm.yandex.practicum.model.Post;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Полнотекстовый индекс постов в памяти по заголовку и тексту (markdown).
+ * Инвертированный индекс с позициями термов, ранжирование по BM25.
+ * Фразы в кавычках ищутся по позициям как последовательность термов
+ */
+@Component
+public class FullTextSearchIndex implements PostWriteListener {
+
+    // Параметры BM25
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Вхождение терма в заголовок весит как несколько вхождений в текст
+    private static final int TITLE_BOOST = 3;
+    // Разрыв позиций между заголовком и текстом, чтобы фраза не "склеивала" поля
+    private static final int FIELD_GAP = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final TextAnalyzer analyzer = new TextAnalyzer();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // терм -> (id поста -> позиции терма в посте)
+    private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+    private final Map<Long, Document> documents = new HashMap<>();
+    private long totalLength = 0;
+    private volatile boolean ready = false;
+
+    public FullTextSearchIndex(JdbcTemplate jdbcTemplate,
+                               @Value("${blog.search.fulltext.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс по таблице posts
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            totalLength = 0;
+            jdbcTemplate.query("SELECT id, title, text FROM posts ORDER BY id",
+                    (RowCallbackHandler) rs -> addDocument(rs.getLong("id"), rs.getString("title"), rs.getString("text")));
+            ready = true;
+            System.out.println("✓ Full-text index built: " + documents.size() + " posts, " + postings.size() + " terms");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        if (!enabled || post.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(post.getId());
+            addDocument(post.getId(), post.getTitle(), post.getText());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostDeleted(Long postId) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeDocument(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ищет посты по тексту запроса и возвращает не более limit результатов по убыванию релевантности.
+     * Посту достаточно содержать любой из термов; фразы в кавычках обязательны
+     */
+    public List<ScoredPost> search(String text, int limit) {
+        if (!isReady() || text == null) {
+            return List.of();
+        }
+
+        List<List<String>> phrases = new ArrayList<>();
+        Set<String> terms = new LinkedHashSet<>();
+        String[] segments = text.split("\"", -1);
+        for (int i = 0; i < segments.length; i++) {
+            List<String> segmentTerms = analyzer.analyze(segments[i]);
+            terms.addAll(segmentTerms);
+            // Нечетные сегменты находятся внутри кавычек
+            if (i % 2 == 1 && segmentTerms.size() > 1) {
+                phrases.add(segmentTerms);
+            }
+        }
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            int docCount = documents.size();
+            double avgLength = docCount == 0 ? 0 : (double) totalLength / docCount;
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, int[]> termPostings = postings.get(term);
+                if (termPostings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docCount - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                for (Map.Entry<Long, int[]> entry : termPostings.entrySet()) {
+                    Document document = documents.get(entry.getKey());
+                    double tf = weightedFrequency(entry.getValue(), document.titleLength());
+                    double norm = K1 * (1 - B + B * document.length() / avgLength);
+                    scores.merge(entry.getKey(), idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+
+            List<ScoredPost> result = new ArrayList<>();
+            for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+                if (containsPhrases(entry.getKey(), phrases)) {
+                    result.add(new ScoredPost(entry.getKey(), entry.getValue()));
+                }
+            }
+            result.sort((a, b) -> a.score() != b.score()
+                    ? Double.compare(b.score(), a.score())
+                    : Long.compare(a.postId(), b.postId()));
+            return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean containsPhrases(Long postId, List<List<String>> phrases) {
+        for (List<String> phrase : phrases) {
+            if (!containsPhrase(postId, phrase)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Фраза найдена, если для позиции первого терма каждый следующий терм стоит на позиции +1, +2, ...
+    private boolean containsPhrase(Long postId, List<String> phrase) {
+        int[][] positions = new int[phrase.size()][];
+        for (int i = 0; i < phrase.size(); i++) {
+            Map<Long, int[]> termPostings = postings.get(phrase.get(i));
+            positions[i] = termPostings == null ? null : termPostings.get(postId);
+            if (positions[i] == null) {
+                return false;
+            }
+        }
+        for (int start : positions[0]) {
+            boolean matched = true;
+            for (int i = 1; i < positions.length && matched; i++) {
+                matched = Arrays.binarySearch(positions[i], start + i) >= 0;
+            }
+            if (matched) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static double weightedFrequency(int[] positions, int titleLength) {
+        double tf = 0;
+        for (int position : positions) {
+            tf += position < titleLength ? TITLE_BOOST : 1;
+        }
+        return tf;
+    }
+
+    private void addDocument(long postId, String title, String text) {
+        List<String> titleTerms = analyzer.analyze(title);
+        List<String> textTerms = analyzer.analyze(text);
+
+        Map<String, List<Integer>> termPositions = new HashMap<>();
+        for (int i = 0; i < titleTerms.size(); i++) {
+            termPositions.computeIfAbsent(titleTerms.get(i), t -> new ArrayList<>()).add(i);
+        }
+        int textOffset = titleTerms.size() + FIELD_GAP;
+        for (int i = 0; i < textTerms.size(); i++) {
+            termPositions.computeIfAbsent(textTerms.get(i), t -> new ArrayList<>()).add(textOffset + i);
+        }
+
+        for (Map.Entry<String, List<Integer>> entry : termPositions.entrySet()) {
+            int[] positions = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+            postings.computeIfAbsent(entry.getKey(), t -> new HashMap<>()).put(postId, positions);
+        }
+
+        int length = titleTerms.size() + textTerms.size();
+        documents.put(postId, new Document(titleTerms.size(), length, termPositions.keySet().toArray(new String[0])));
+        totalLength += length;
+    }
+
+    private void removeDocument(long postId) {
+        Document document = documents.remove(postId);
+        if (document == null) {
+            return;
+        }
+        totalLength -= document.length();
+        for (String term : document.terms()) {
+            Map<Long, int[]> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(postId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Результат поиска: id поста и его релевантность
+     */
+    public record ScoredPost(long postId, double score) {
+    }
+
+    // Длины полей и список термов документа (для удаления из индекса)
+    private record Document(int titleLength, int length, String[] terms) {
+    }
+}
@@ -1,23 +1,73 @@
 package shm.yandex.practicum.repository;
 
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import shm.yandex.practicum.model.ArchivedPost;
 import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostCursor;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 @Repository
 public class JdbcNativePostRepository implements PostRepository {
 
-    private final JdbcTemplate jdbcTemplate;
+    private static final String LIST_SELECT = """
+            SELECT p.id, p.title, p.text, p.likes_count, p.comments_count, p.image_file_name
+            FROM posts p
+            """;
+
+    // Та же выборка и общее количество строк фильтра, посчитанное в том же запросе
+    private static final String LIST_SELECT_WITH_TOTAL = """
+            SELECT p.id, p.title, p.text, p.likes_count, p.comments_count, p.image_file_name,
+                   COUNT(*) OVER() as total_count
+            FROM posts p
+            """;
+
+    // Больше кандидатов из индекса заголовков нет смысла передавать списком - дешевле ILIKE
+    private static final int MAX_INDEX_CANDIDATES = 1000;
 
-    public JdbcNativePostRepository(JdbcTemplate jdbcTemplate) {
+    private final JdbcTemplate jdbcTemplate;
+    private final TitleTrigramIndex titleIndex;
+    private final TagBitmapIndex tagIndex;
+    private final TagDictionary tagDictionary;
+    private final List<PostWriteListener> writeListeners;
+
+    public JdbcNativePostRepository(JdbcTemplate jdbcTemplate,
+                                    TitleTrigramIndex titleIndex,
+                                    TagBitmapIndex tagIndex,
+                                    TagDictionary tagDictionary,
+                                    List<PostWriteListener> writeListeners) {
         this.jdbcTemplate = jdbcTemplate;
+        this.titleIndex = titleIndex;
+        this.tagIndex = tagIndex;
+        this.tagDictionary = tagDictionary;
+        this.writeListeners = writeListeners;
     }
 
     @Override
@@ -25,128 +75,222 @@ public class JdbcNativePostRepository implements PostRepository {
         if (pageNumber < 1) pageNumber = 1;
         if (pageSize < 1) pageSize = 10;
 
-        List<String> tags = new ArrayList<>();
-        List<String> words = new ArrayList<>();
+        SearchQuery query = SearchQuery.parse(search);
+        List<Object> params = new ArrayList<>();
+        StringBuilder sqlBuilder = new StringBuilder(LIST_SELECT);
+        sqlBuilder.append(buildSearchFilter(query, tagIndex.evaluate(query), params));
+
+        // Добавляем сортировку и пагинацию
+        sqlBuilder.append(" ORDER BY p.likes_count DESC, p.id LIMIT ? OFFSET ?");
+        params.add(pageSize);
+        params.add((pageNumber - 1) * pageSize);
+
+        List<Post> posts = jdbcTemplate.query(sqlBuilder.toString(), this::mapListPost, params.toArray());
 
-        if (search != null && !search.trim().isEmpty()) {
-            String[] parts = search.trim().split(" ");
+        // Загружаем теги для всей страницы одним запросом
+        loadTagsForPosts(posts);
 
-            for (String part : parts) {
-                if (part.isEmpty()) continue;
+        return posts;
+    }
 
-                if (part.startsWith("#")) {
-                    // Тэг
-                    String tag = part.substring(1).toLowerCase();
-                    if (!tag.isEmpty()) {
-                        tags.add(tag);
-                    }
-                } else {
-                    // Слово
-                    words.add(part.toLowerCase());
-                }
-            }
+    @Override
+    public PostSearchResult findPageWithTotal(SearchQuery query, int pageNumber, int pageSize, boolean exactTotal) {
+        if (pageNumber < 1) pageNumber = 1;
+        if (pageSize < 1) pageSize = 10;
+
+        RoaringBitmap tagMatches = tagIndex.evaluate(query);
+        if (tagMatches != null && tagMatches.isEmpty()) {
+            // Теговый фильтр ничего не выбрал - к базе не обращаемся
+            return new PostSearchResult(new ArrayList<>(), 0, false);
         }
 
-        StringBuilder sqlBuilder = new StringBuilder();
-        sqlBuilder.append("""
-            SELECT p.id, p.title, p.text, p.likes_count, 
-                   (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id) as comments_count,
-                   p.image_file_name
-            FROM posts p
-            """);
+        // Для фильтра только по тегам точное количество - мощность битового множества
+        Integer knownTotal = tagMatches != null && query.getWords().isEmpty() ? tagMatches.getCardinality() : null;
+        boolean estimated = !exactTotal && knownTotal == null;
+        boolean countInQuery = exactTotal && knownTotal == null;
 
         List<Object> params = new ArrayList<>();
-        boolean hasWhere = false;
-
-        // Если есть теги, добавляем
-        if (!tags.isEmpty()) {
-            sqlBuilder.append("""
-                WHERE EXISTS (
-                    SELECT 1 FROM post_tags pt 
-                    JOIN tags t ON pt.tag_id = t.id 
-                    WHERE pt.post_id = p.id AND t.name = ?
-                )
-                """);
-            params.add(tags.get(0)); // первый тег
-            hasWhere = true;
-
-            // остальные тэги
-            for (int i = 1; i < tags.size(); i++) {
-                sqlBuilder.append("""
-                    AND EXISTS (
-                        SELECT 1 FROM post_tags pt2 
-                        JOIN tags t2 ON pt2.tag_id = t2.id 
-                        WHERE pt2.post_id = p.id AND t2.name = ?
-                    )
-                    """);
-                params.add(tags.get(i));
+        StringBuilder sqlBuilder = new StringBuilder(countInQuery ? LIST_SELECT_WITH_TOTAL : LIST_SELECT);
+        sqlBuilder.append(buildSearchFilter(query, tagMatches, params));
+        sqlBuilder.append(" ORDER BY p.likes_count DESC, p.id LIMIT ? OFFSET ?");
+        // Без точного подсчета берем лишнюю запись, чтобы определить наличие следующей страницы
+        params.add(estimated ? pageSize + 1 : pageSize);
+        params.add((pageNumber - 1) * pageSize);
+
+        int[] total = {knownTotal != null ? knownTotal : 0};
+        List<Post> posts = jdbcTemplate.query(sqlBuilder.toString(), (rs, rowNum) -> {
+            if (countInQuery) {
+                total[0] = rs.getInt("total_count");
             }
+            return mapListPost(rs, rowNum);
+        }, params.toArray());
+
+        if (estimated) {
+            boolean hasNext = posts.size() > pageSize;
+            if (hasNext) {
+                posts = new ArrayList<>(posts.subList(0, pageSize));
+            }
+            loadTagsForPosts(posts);
+            return new PostSearchResult(posts, null, hasNext);
+        }
+
+        // Страница за пределами выборки: оконная функция ничего не вернула, считаем отдельно
+        if (countInQuery && posts.isEmpty() && pageNumber > 1) {
+            total[0] = countBySearch(query);
         }
 
-        if (!words.isEmpty()) {
+        loadTagsForPosts(posts);
+        return new PostSearchResult(posts, total[0], (long) pageNumber * pageSize < total[0]);
+    }
+
+    @Override
+    public List<Post> findBySearchAfterCursor(SearchQuery query, PostCursor cursor, boolean backward, int limit) {
+        if (limit < 1) limit = 10;
+
+        List<Object> params = new ArrayList<>();
+        StringBuilder sqlBuilder = new StringBuilder(LIST_SELECT);
+        sqlBuilder.append(buildSearchFilter(query, tagIndex.evaluate(query), params));
 
-            // Обычные слова объединяем в подстроку
-            if (hasWhere) {
-                sqlBuilder.append(" AND (");
+        // Seek-предикат по (likes_count DESC, id ASC): вместо OFFSET сразу переходим к позиции курсора
+        if (cursor != null) {
+            if (backward) {
+                sqlBuilder.append(" AND (p.likes_count > ? OR (p.likes_count = ? AND p.id < ?))");
             } else {
-                sqlBuilder.append(" WHERE (");
-                hasWhere = true;
+                sqlBuilder.append(" AND (p.likes_count < ? OR (p.likes_count = ? AND p.id > ?))");
             }
+            params.add(cursor.getLikesCount());
+            params.add(cursor.getLikesCount());
+            params.add(cursor.getId());
+        }
+
+        if (backward) {
+            sqlBuilder.append(" ORDER BY p.likes_count ASC, p.id DESC LIMIT ?");
+        } else {
+            sqlBuilder.append(" ORDER BY p.likes_count DESC, p.id LIMIT ?");
+        }
+        params.add(limit);
 
+        List<Post> posts = jdbcTemplate.query(sqlBuilder.toString(), this::mapListPost, params.toArray());
+        loadTagsForPosts(posts);
 
-            StringBuilder strForSearch = new StringBuilder();
-            for (int i = 0; i < words.size(); i++) {
-                strForSearch.append(words.get(i));
-                if (i < words.size() - 1) strForSearch.append(" ");
+        return posts;
+    }
+
+    /**
+     * Формирует условие WHERE по разобранной строке поиска.
+     * Если индексы готовы, теги (tagMatches - битовое множество постов) и подстрока заголовка
+     * сводятся к списку id; иначе теги проверяются через EXISTS, подстрока - через ILIKE
+     */
+    private String buildSearchFilter(SearchQuery query, RoaringBitmap tagMatches, List<Object> params) {
+        List<String> conditions = new ArrayList<>();
+        boolean hasWords = !query.getWords().isEmpty();
+
+        // Пересекаем то, что могут дать индексы
+        List<Long> ids = null;
+        boolean tagsByIndex = false;
+        boolean wordsByIndex = false;
+        List<Long> titleCandidates = hasWords ? titleIndex.findCandidates(query.getTitleSubstring()) : null;
+        if (titleCandidates != null) {
+            ids = tagMatches == null
+                    ? titleCandidates
+                    : titleCandidates.stream().filter(id -> tagMatches.contains(id.intValue())).toList();
+            tagsByIndex = tagMatches != null;
+            wordsByIndex = true;
+        } else if (tagMatches != null && tagMatches.getCardinality() <= MAX_INDEX_CANDIDATES) {
+            ids = new ArrayList<>(tagMatches.getCardinality());
+            for (int id : tagMatches) {
+                ids.add((long) id);
             }
+            tagsByIndex = true;
+        }
+        if (ids != null && ids.size() > MAX_INDEX_CANDIDATES) {
+            ids = null;
+            tagsByIndex = false;
+            wordsByIndex = false;
+        }
 
-            sqlBuilder.append("p.title ILIKE ?)");
-            params.add("%" + strForSearch + "%");
+        if (ids != null) {
+            if (ids.isEmpty()) {
+                conditions.add("1=0");
+            } else {
+                conditions.add("p.id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")");
+                params.addAll(ids);
+            }
+        }
 
+        if (!tagsByIndex) {
+            addTagConditions(query, conditions, params);
         }
 
-        // Если ничего не указано, возвращаем все посты
-        if (!hasWhere) {
-            sqlBuilder.append(" WHERE 1=1");
+        // Обычные слова объединяем в подстроку
+        if (hasWords && !wordsByIndex) {
+            conditions.add("p.title ILIKE ?");
+            params.add("%" + query.getTitleSubstring() + "%");
         }
 
-        // Добавляем сортировку и пагинацию
-        sqlBuilder.append(" ORDER BY p.likes_count DESC, p.id LIMIT ? OFFSET ?");
-        params.add(pageSize);
-        params.add((pageNumber - 1) * pageSize);
+        // Если ничего не указано, возвращаем все посты
+        if (conditions.isEmpty()) {
+            return " WHERE 1=1";
+        }
+        return " WHERE " + String.join(" AND ", conditions);
+    }
 
-        String sql = sqlBuilder.toString();
+    // Теговые условия в SQL: обязательные теги, группы "хотя бы один из" и исключенные теги
+    private static void addTagConditions(SearchQuery query, List<String> conditions, List<Object> params) {
+        for (String tag : query.getTags()) {
+            conditions.add("""
+                    EXISTS (
+                        SELECT 1 FROM post_tags pt
+                        JOIN tags t ON pt.tag_id = t.id
+                        WHERE pt.post_id = p.id AND t.name = ?
+                    )""");
+            params.add(tag);
+        }
 
-        List<Post> posts = jdbcTemplate.query(sql, (rs, rowNum) -> {
-            String text = rs.getString("text");
-            if (text != null && text.length() > 128) {
-                text = text.substring(0, 128) + "…";
-            }
+        for (List<String> group : query.getAnyOfTags()) {
+            conditions.add("""
+                    EXISTS (
+                        SELECT 1 FROM post_tags pt
+                        JOIN tags t ON pt.tag_id = t.id
+                        WHERE pt.post_id = p.id AND t.name IN (%s)
+                    )""".formatted(String.join(", ", Collections.nCopies(group.size(), "?"))));
+            params.addAll(group);
+        }
 
-            Post post = new Post(
-                    rs.getLong("id"),
-                    rs.getString("title"),
-                    text, // Используем обрезанный текст
-                    rs.getInt("likes_count"),
-                    rs.getInt("comments_count"),
-                    rs.getString("image_file_name")
-            );
-            return post;
-        }, params.toArray());
+        for (String tag : query.getExcludedTags()) {
+            conditions.add("""
+                    NOT EXISTS (
+                        SELECT 1 FROM post_tags pt
+                        JOIN tags t ON pt.tag_id = t.id
+                        WHERE pt.post_id = p.id AND t.name = ?
+                    )""");
+            params.add(tag);
+        }
+    }
 
-        // Загружаем теги для каждого поста
-        for (Post post : posts) {
-            loadTagsForPost(post);
+    private Post mapListPost(ResultSet rs, int rowNum) throws SQLException {
+        String text = rs.getString("text");
+        if (text != null && text.length() > 128) {
+            text = text.substring(0, 128) + "…";
         }
 
-        return posts;
+        return new Post(
+                rs.getLong("id"),
+                rs.getString("title"),
+                text, // Используем обрезанный текст
+                rs.getInt("likes_count"),
+                rs.getInt("comments_count"),
+                rs.getString("image_file_name")
+        );
     }
 
 
     @Override
+    @Transactional
     public void save(Post post) {
 
-        String sql = "insert into posts(title, text, likes_count, comments_count) values(?, ?, ?, ?)";
+        // comments_count ведет CommentRepository при записи комментариев, у нового поста их нет
+        String sql = "insert into posts(title, text, likes_count, comments_count) values(?, ?, ?, 0)";
 
         KeyHolder keyHolder = new GeneratedKeyHolder();
 
@@ -155,9 +299,9 @@ public class JdbcNativePostRepository implements PostRepository {
             ps.setString(1, post.getTitle());
             ps.setString(2, post.getText());
             ps.setInt(3, post.getLikesCount() != null ? post.getLikesCount() : 0);
-            ps.setInt(4, post.getCommentsCount() != null ? post.getCommentsCount() : 0);
             return ps;
         }, keyHolder);
+        post.setCommentsCount(0);
 
         // Получаем сгенерированный ID
         if (keyHolder.getKeys() != null && keyHolder.getKeys().containsKey("id")) {
@@ -169,13 +313,26 @@ public class JdbcNativePostRepository implements PostRepository {
 
         // Сохраняем теги после получения ID поста
         if (post.getId() != null && post.getTags() != null && !post.getTags().isEmpty()) {
-            saveTags(post);
+            saveTags(post, Set.of());
         }
 
+        notifySaved(post);
+
     }
 
+    /**
+     * Приводит теги поста к переданному набору: вычисляет разницу с текущими тегами
+     * и выполняет только нужные вставки и удаления. Если набор не изменился, запросов на запись нет
+     * (текущие теги читаются одним SELECT в той же транзакции - индекс тегов обновляется только после фиксации)
+     */
     @Override
+    @Transactional
     public void saveTags(Post post) {
+        saveTags(post, null);
+    }
+
+    // knownTags == null - текущие теги неизвестны (у только что созданного поста их заведомо нет)
+    private void saveTags(Post post, Set<String> knownTags) {
         Long postId = post.getId();
         List<String> tags = post.getTags();
 
@@ -183,42 +340,58 @@ public class JdbcNativePostRepository implements PostRepository {
             return;
         }
 
-        // Удаляем старые теги для этого поста
-        jdbcTemplate.update("DELETE FROM post_tags WHERE post_id = ?", postId);
-
-        // Добавляем новые теги
+        Set<String> newTags = new LinkedHashSet<>();
         for (String tagName : tags) {
-            if (tagName == null || tagName.trim().isEmpty()) {
-                continue;
+            if (tagName != null && !tagName.trim().isEmpty()) {
+                newTags.add(tagName.trim().toLowerCase());
             }
+        }
 
-            tagName = tagName.trim().toLowerCase();
-
-            // Проверяем, существует ли тег
-            String findTagSql = "SELECT id FROM tags WHERE name = ?";
-            List<Long> tagIds = jdbcTemplate.queryForList(findTagSql, Long.class, tagName);
+        Set<String> currentTags = knownTags != null ? knownTags
+                : new LinkedHashSet<>(tagDictionary.findNames(
+                        jdbcTemplate.queryForList("SELECT tag_id FROM post_tags WHERE post_id = ?", Long.class, postId))
+                        .values());
+        if (currentTags.equals(newTags)) {
+            return;
+        }
 
-            Long tagId;
-            if (tagIds.isEmpty()) {
-                // Если тег не существует, создаем его
-                String insertTagSql = "INSERT INTO tags(name) VALUES(?)";
-                jdbcTemplate.update(insertTagSql, tagName);
+        List<String> removed = currentTags.stream().filter(tag -> !newTags.contains(tag)).toList();
+        List<String> added = newTags.stream().filter(tag -> !currentTags.contains(tag)).toList();
+
+        Collection<Long> removedIds = removed.isEmpty() ? List.of() : tagDictionary.findIds(removed).values();
+        if (!removedIds.isEmpty()) {
+            String sql = "DELETE FROM post_tags WHERE post_id = ? AND tag_id IN ("
+                    + String.join(", ", Collections.nCopies(removedIds.size(), "?")) + ")";
+            List<Object> params = new ArrayList<>();
+            params.add(postId);
+            params.addAll(removedIds);
+            jdbcTemplate.update(sql, params.toArray());
+        }
 
-                // ID созданного тега
-                tagId = jdbcTemplate.queryForObject("SELECT id FROM tags WHERE name = ?", Long.class, tagName);
-            } else {
-                tagId = tagIds.get(0);
+        if (!added.isEmpty()) {
+            List<Object[]> postTagArgs = new ArrayList<>();
+            for (Long tagId : tagDictionary.resolveIds(added).values()) {
+                postTagArgs.add(new Object[]{postId, tagId});
             }
-
-            // Связываем тег с постом
-            String insertPostTagSql = "INSERT INTO post_tags(post_id, tag_id) VALUES(?, ?)";
-            jdbcTemplate.update(insertPostTagSql, postId, tagId);
+            jdbcTemplate.batchUpdate("INSERT INTO post_tags(post_id, tag_id) VALUES(?, ?)", postTagArgs);
         }
+
+        List<String> savedTags = new ArrayList<>(newTags);
+        afterCommit(() -> {
+            for (PostWriteListener listener : writeListeners) {
+                listener.onTagsSaved(postId, savedTags);
+            }
+        });
     }
 
     @Override
     public void deletePost(Long id) {
         jdbcTemplate.update("delete from posts where id = ?", id);
+        afterCommit(() -> {
+            for (PostWriteListener listener : writeListeners) {
+                listener.onPostDeleted(id);
+            }
+        });
     }
 
     @Override
@@ -239,122 +412,83 @@ public class JdbcNativePostRepository implements PostRepository {
             return null;
         }
         Post post = posts.getFirst();
-
-        String tagsSql = """
-                SELECT t.name 
-                FROM tags t
-                INNER JOIN post_tags pt ON t.id = pt.tag_id
-                WHERE pt.post_id = ?
-                ORDER BY t.name
-                """;
-
-        List<String> tags = jdbcTemplate.queryForList(tagsSql, String.class, id);
-        post.setTags(tags);
+        loadTagsForPosts(posts);
         return post;
     }
 
-    private void loadTagsForPost(Post post) {
-        String tagsSql = """
-                SELECT t.name 
-                FROM tags t
-                INNER JOIN post_tags pt ON t.id = pt.tag_id
-                WHERE pt.post_id = ?
-                ORDER BY t.name
-                """;
-
-        List<String> tags = jdbcTemplate.queryForList(tagsSql, String.class, post.getId());
-        post.setTags(tags);
-    }
-
-    @Override
-    public int countBySearch(String search) {
-        // Разбиваем строку поиска на слова
-        List<String> tags = new ArrayList<>();
-        List<String> words = new ArrayList<>();
-
-        if (search != null && !search.trim().isEmpty()) {
-            String[] parts = search.trim().split("\\s+");
-
-            for (String part : parts) {
-                if (part.isEmpty()) continue;
+    /**
+     * Загружает теги сразу для списка постов одним запросом (post_id IN (...))
+     * и раскладывает их по объектам в памяти
+     */
+    private void loadTagsForPosts(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return;
+        }
 
-                if (part.startsWith("#")) {
-                    String tag = part.substring(1).toLowerCase();
-                    if (!tag.isEmpty()) {
-                        tags.add(tag);
-                    }
-                } else {
-                    words.add(part.toLowerCase());
-                }
-            }
+        Map<Long, Post> postsById = new HashMap<>();
+        for (Post post : posts) {
+            post.setTags(new ArrayList<>());
+            postsById.put(post.getId(), post);
         }
 
-        // Формируем SQL запрос для подсчета
-        StringBuilder sqlBuilder = new StringBuilder();
-        sqlBuilder.append("SELECT COUNT(*) FROM posts p ");
+        // Из post_tags читаем только id тегов, имена берем из словаря
+        String placeholders = String.join(", ", Collections.nCopies(postsById.size(), "?"));
+        String tagsSql = "SELECT post_id, tag_id FROM post_tags WHERE post_id IN (" + placeholders + ")";
 
-        List<Object> params = new ArrayList<>();
-        boolean hasWhere = false;
-
-        if (!tags.isEmpty()) {
-            sqlBuilder.append("""
-                WHERE EXISTS (
-                    SELECT 1 FROM post_tags pt 
-                    JOIN tags t ON pt.tag_id = t.id 
-                    WHERE pt.post_id = p.id AND t.name = ?
-                )
-                """);
-            params.add(tags.get(0));
-            hasWhere = true;
-
-            for (int i = 1; i < tags.size(); i++) {
-                sqlBuilder.append("""
-                    AND EXISTS (
-                        SELECT 1 FROM post_tags pt2 
-                        JOIN tags t2 ON pt2.tag_id = t2.id 
-                        WHERE pt2.post_id = p.id AND t2.name = ?
-                    )
-                    """);
-                params.add(tags.get(i));
-            }
-        }
+        Map<Long, List<Long>> tagIdsByPost = new HashMap<>();
+        Set<Long> tagIds = new HashSet<>();
+        jdbcTemplate.query(tagsSql, (RowCallbackHandler) rs -> {
+            long tagId = rs.getLong("tag_id");
+            tagIdsByPost.computeIfAbsent(rs.getLong("post_id"), id -> new ArrayList<>()).add(tagId);
+            tagIds.add(tagId);
+        }, postsById.keySet().toArray());
 
-        if (!words.isEmpty()) {
-            if (hasWhere) {
-                sqlBuilder.append(" AND (");
-            } else {
-                sqlBuilder.append(" WHERE (");
-                hasWhere = true;
+        if (tagIds.isEmpty()) {
+            return;
+        }
+        Map<Long, String> names = tagDictionary.findNames(tagIds);
+        tagIdsByPost.forEach((postId, ids) -> {
+            Post post = postsById.get(postId);
+            if (post == null) {
+                return;
             }
-
-            StringBuilder strForSearch = new StringBuilder();
-            for (int i = 0; i < words.size(); i++) {
-                strForSearch.append(words.get(i));
-                if (i < words.size() - 1) strForSearch.append(" ");
+            for (Long tagId : ids) {
+                String name = names.get(tagId);
+                if (name != null) {
+                    post.getTags().add(name);
+                }
             }
+            // Прежний порядок: по имени тега
+            Collections.sort(post.getTags());
+        });
+    }
 
-            sqlBuilder.append("p.title ILIKE ?)");
-            params.add("%" + strForSearch + "%");
-        }
+    @Override
+    public int countBySearch(String search) {
+        return countBySearch(SearchQuery.parse(search));
+    }
 
-        if (!hasWhere) {
-            sqlBuilder.append(" WHERE 1=1");
+    private int countBySearch(SearchQuery query) {
+        RoaringBitmap tagMatches = tagIndex.evaluate(query);
+        if (tagMatches != null && query.getWords().isEmpty()) {
+            return tagMatches.getCardinality();
         }
 
-        String sql = sqlBuilder.toString();
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) FROM posts p " + buildSearchFilter(query, tagMatches, params);
 
         Integer count = jdbcTemplate.queryForObject(sql, Integer.class, params.toArray());
         return count != null ? count : 0;
     }
 
     @Override
+    @Transactional
     public void update(Post post) {
+        // Счетчики не перезаписываем: comments_count изменяет CommentRepository, likes_count - addLikes
         String sql = """
         UPDATE posts 
         SET title = ?, 
             text = ?, 
-            likes_count = ?, 
-            comments_count = ?, 
             image_file_name = ?            
         WHERE id = ?
         """;
@@ -362,13 +496,277 @@ public class JdbcNativePostRepository implements PostRepository {
         jdbcTemplate.update(sql,
                 post.getTitle(),
                 post.getText(),
-                post.getLikesCount(),
-                post.getCommentsCount(),
                 post.getImageFileName(),
                 post.getId());
 
         if (post.getTags() != null) {
             saveTags(post);
         }
+
+        notifySaved(post);
+    }
+
+    @Override
+    @Transactional
+    public Map<Long, Integer> addLikes(Map<Long, Long> deltas) {
+        Map<Long, Integer> likes = new HashMap<>();
+        if (deltas.isEmpty()) {
+            return likes;
+        }
+
+        // Порядок по id одинаков для всех экземпляров приложения - строки блокируются без взаимоблокировок
+        List<Long> ids = deltas.keySet().stream().sorted().toList();
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Long id : ids) {
+            batchArgs.add(new Object[]{deltas.get(id), id});
+        }
+        jdbcTemplate.batchUpdate("UPDATE posts SET likes_count = likes_count + ? WHERE id = ?", batchArgs);
+
+        String sql = "SELECT id, likes_count FROM posts WHERE id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> likes.put(rs.getLong("id"), rs.getInt("likes_count")),
+                ids.toArray());
+        return likes;
+    }
+
+    @Override
+    public List<Post> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = LIST_SELECT + " WHERE p.id IN ("
+                + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        List<Post> posts = jdbcTemplate.query(sql, this::mapListPost, ids.toArray());
+        loadTagsForPosts(posts);
+
+        // Возвращаем посты в порядке переданных id
+        Map<Long, Integer> order = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            order.putIfAbsent(ids.get(i), i);
+        }
+        posts.sort(Comparator.comparing(post -> order.get(post.getId())));
+        return posts;
+    }
+
+    @Override
+    public Set<Long> findIdsMatchingTags(List<Long> ids, SearchQuery query) {
+        if (ids.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        SearchQuery tagQuery = query.tagsOnly();
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT p.id FROM posts p "
+                + buildSearchFilter(tagQuery, tagIndex.evaluate(tagQuery), params)
+                + " AND p.id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        params.addAll(ids);
+
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, params.toArray()));
+    }
+
+    /**
+     * Пакетная запись пачки архивных постов в одной транзакции: посты, связи с тегами и комментарии -
+     * по одному batchUpdate на таблицу, теги всей пачки разрешаются через словарь одним обращением.
+     * Возвращает id созданных постов в порядке пачки
+     */
+    @Override
+    @Transactional
+    public List<Long> importBatch(List<ArchivedPost> batch) {
+        if (batch.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sql = "INSERT INTO posts(title, text, likes_count, comments_count, image_file_name) VALUES(?, ?, ?, ?, ?)";
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(sql, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ArchivedPost post = batch.get(i);
+                        ps.setString(1, post.getTitle());
+                        ps.setString(2, post.getText());
+                        ps.setInt(3, post.getLikesCount() != null ? post.getLikesCount() : 0);
+                        ps.setInt(4, post.getComments() != null ? post.getComments().size() : 0);
+                        ps.setString(5, post.getImageFileName());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return batch.size();
+                    }
+                },
+                keyHolder);
+
+        // Сгенерированные id в порядке строк пачки
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            Object id = keys.containsKey("id") ? keys.get("id") : keys.values().iterator().next();
+            ids.add(((Number) id).longValue());
+        }
+        if (ids.size() != batch.size()) {
+            throw new IllegalStateException("Expected " + batch.size() + " generated ids, got " + ids.size());
+        }
+
+        // Нормализованные теги каждого поста и все теги пачки
+        List<List<String>> tagsByPost = new ArrayList<>();
+        Set<String> batchTags = new LinkedHashSet<>();
+        for (ArchivedPost post : batch) {
+            Set<String> tags = new LinkedHashSet<>();
+            if (post.getTags() != null) {
+                for (String tagName : post.getTags()) {
+                    if (tagName != null && !tagName.trim().isEmpty()) {
+                        tags.add(tagName.trim().toLowerCase());
+                    }
+                }
+            }
+            tagsByPost.add(new ArrayList<>(tags));
+            batchTags.addAll(tags);
+        }
+
+        List<Object[]> postTagArgs = new ArrayList<>();
+        List<Object[]> commentArgs = new ArrayList<>();
+        Map<String, Long> tagIds = batchTags.isEmpty() ? Map.of() : tagDictionary.resolveIds(batchTags);
+        for (int i = 0; i < batch.size(); i++) {
+            Long postId = ids.get(i);
+            for (String tag : tagsByPost.get(i)) {
+                postTagArgs.add(new Object[]{postId, tagIds.get(tag)});
+            }
+            if (batch.get(i).getComments() != null) {
+                for (String comment : batch.get(i).getComments()) {
+                    commentArgs.add(new Object[]{comment, postId});
+                }
+            }
+        }
+        if (!postTagArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO post_tags(post_id, tag_id) VALUES(?, ?)", postTagArgs);
+        }
+        if (!commentArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO comments(text, post_id) VALUES(?, ?)", commentArgs);
+        }
+
+        List<Post> saved = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            ArchivedPost archived = batch.get(i);
+            Post post = new Post(ids.get(i), archived.getTitle(), archived.getText(),
+                    archived.getLikesCount() != null ? archived.getLikesCount() : 0,
+                    archived.getComments() != null ? archived.getComments().size() : 0,
+                    archived.getImageFileName());
+            post.setTags(tagsByPost.get(i));
+            saved.add(post);
+        }
+        afterCommit(() -> {
+            for (Post post : saved) {
+                for (PostWriteListener listener : writeListeners) {
+                    listener.onPostSaved(post);
+                    listener.onTagsSaved(post.getId(), post.getTags());
+                }
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Выгружает все посты с тегами и комментариями в порядке id.
+     * Три упорядоченных по post_id курсора (посты, теги, комментарии) читаются только вперед
+     * порциями по fetchSize и сливаются по ходу чтения: в памяти только текущий пост.
+     * Все три запроса выполняются в одной транзакции REPEATABLE READ - выгрузка согласована.
+     * Возвращает количество выгруженных постов
+     */
+    @Override
+    public long exportAll(int fetchSize, Consumer<ArchivedPost> consumer) {
+        Long exported = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            // Без автокоммита драйвер PostgreSQL читает курсором порциями, а не весь результат сразу
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (PreparedStatement posts = forwardOnly(connection, """
+                         SELECT id, title, text, likes_count, image_file_name
+                         FROM posts
+                         ORDER BY id
+                         """, fetchSize);
+                 PreparedStatement tags = forwardOnly(connection, """
+                         SELECT pt.post_id, t.name
+                         FROM post_tags pt
+                         INNER JOIN tags t ON t.id = pt.tag_id
+                         ORDER BY pt.post_id, t.name
+                         """, fetchSize);
+                 PreparedStatement comments = forwardOnly(connection, """
+                         SELECT post_id, text
+                         FROM comments
+                         ORDER BY post_id, id
+                         """, fetchSize);
+                 ResultSet postRows = posts.executeQuery();
+                 ResultSet tagRows = tags.executeQuery();
+                 ResultSet commentRows = comments.executeQuery()) {
+
+                long count = 0;
+                boolean hasTag = tagRows.next();
+                boolean hasComment = commentRows.next();
+                while (postRows.next()) {
+                    long postId = postRows.getLong("id");
+                    ArchivedPost post = new ArchivedPost(postId, postRows.getString("title"), postRows.getString("text"),
+                            new ArrayList<>(), postRows.getInt("likes_count"), postRows.getString("image_file_name"),
+                            new ArrayList<>());
+
+                    // Строки с меньшим post_id принадлежат постам, которых уже нет, - пропускаем
+                    while (hasTag && tagRows.getLong("post_id") <= postId) {
+                        if (tagRows.getLong("post_id") == postId) {
+                            post.getTags().add(tagRows.getString("name"));
+                        }
+                        hasTag = tagRows.next();
+                    }
+                    while (hasComment && commentRows.getLong("post_id") <= postId) {
+                        if (commentRows.getLong("post_id") == postId) {
+                            post.getComments().add(commentRows.getString("text"));
+                        }
+                        hasComment = commentRows.next();
+                    }
+
+                    consumer.accept(post);
+                    count++;
+                }
+                connection.commit();
+                return count;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+        return exported != null ? exported : 0;
+    }
+
+    private static PreparedStatement forwardOnly(Connection connection, String sql, int fetchSize) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+    }
+
+    private void notifySaved(Post post) {
+        afterCommit(() -> {
+            for (PostWriteListener listener : writeListeners) {
+                listener.onPostSaved(post);
+            }
+        });
+    }
+
+    // Индексы в памяти не должны видеть изменения, которые еще могут откатиться:
+    // внутри транзакции уведомления откладываются до ее фиксации
+    private static void afterCommit(Runnable notification) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    notification.run();
+                }
+            });
+        } else {
+            notification.run();
+        }
     }
 }
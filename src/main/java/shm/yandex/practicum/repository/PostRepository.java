@@ -1,8 +1,15 @@
 package shm.yandex.practicum.repository;
 
+import shm.yandex.practicum.model.ArchivedPost;
 import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostCursor;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public interface PostRepository {
 
@@ -16,7 +23,32 @@ public interface PostRepository {
 
     List<Post> findBySearchWithPagination(String search, int pageNumber, int pageSize);
 
+    // Страница и общее количество найденных постов за одно выполнение запроса.
+    // При exactTotal = false подсчет пропускается, hasNext определяется по лишней записи
+    PostSearchResult findPageWithTotal(SearchQuery query, int pageNumber, int pageSize, boolean exactTotal);
+
+    // Keyset-пагинация: посты строго после (или до, если backward) курсора, в порядке обхода
+    List<Post> findBySearchAfterCursor(SearchQuery query, PostCursor cursor, boolean backward, int limit);
+
     int countBySearch(String search);
 
+    // Посты (в виде элементов ленты) в порядке переданных id
+    List<Post> findByIds(List<Long> ids);
+
+    // Те из переданных id, посты которых проходят фильтр по тегам из query (слова не учитываются)
+    Set<Long> findIdsMatchingTags(List<Long> ids, SearchQuery query);
+
     void update(Post post);
+
+    // Атомарно прибавляет накопленные лайки (id поста -> приращение) одним пакетом в одной транзакции.
+    // Возвращает итоговые likes_count обновленных постов
+    Map<Long, Integer> addLikes(Map<Long, Long> deltas);
+
+    // Пакетный импорт архивных постов с тегами и комментариями в одной транзакции.
+    // Возвращает id созданных постов в порядке пачки
+    List<Long> importBatch(List<ArchivedPost> batch);
+
+    // Потоковая выгрузка всех постов с тегами и комментариями в порядке id.
+    // Возвращает количество выгруженных постов
+    long exportAll(int fetchSize, Consumer<ArchivedPost> consumer);
 }
@@ -0,0 +1,21 @@
+package shm.yandex.practicum.repository;
+
+import shm.yandex.practicum.model.Post;
+
+import java.util.List;
+
+/**
+ * Получает уведомления о записи постов в репозиторий.
+ * Используется индексами в памяти для инкрементального обновления
+ */
+public interface PostWriteListener {
+
+    // Пост создан или обновлен. Теги == null - теги поста не менялись
+    void onPostSaved(Post post);
+
+    // Теги поста заменены на переданный список (уже нормализованный)
+    default void onTagsSaved(Long postId, List<String> tags) {
+    }
+
+    void onPostDeleted(Long postId);
+}
@@ -0,0 +1,220 @@
+package shm.yandex.practicum.repository;
+
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.SearchQuery;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Сжатые битовые множества (Roaring) id постов для каждого тега.
+ * Фильтры по тегам (И / ИЛИ / НЕ) вычисляются операциями над битовыми множествами,
+ * количество постов для фильтра только по тегам - мощность результата
+ */
+@Component
+public class TagBitmapIndex implements PostWriteListener {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, RoaringBitmap> postsByTag = new HashMap<>();
+    // Теги каждого поста - чтобы при обновлении убрать пост из старых множеств
+    private final Map<Integer, Set<String>> tagsByPost = new HashMap<>();
+    // Все посты - нужны для запросов, состоящих только из исключений
+    private final RoaringBitmap allPosts = new RoaringBitmap();
+    private volatile boolean ready = false;
+
+    public TagBitmapIndex(JdbcTemplate jdbcTemplate,
+                          @Value("${blog.search.tag-index.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс по таблицам posts и post_tags
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            postsByTag.clear();
+            tagsByPost.clear();
+            allPosts.clear();
+            ready = true;
+
+            jdbcTemplate.query("SELECT id FROM posts",
+                    (RowCallbackHandler) rs -> addPost(rs.getLong("id")));
+            jdbcTemplate.query("""
+                    SELECT pt.post_id, t.name
+                    FROM post_tags pt
+                    INNER JOIN tags t ON t.id = pt.tag_id
+                    """, (RowCallbackHandler) rs -> addTag(rs.getLong("post_id"), rs.getString("name")));
+
+            if (ready) {
+                System.out.println("✓ Tag bitmap index built: " + allPosts.getCardinality() + " posts, "
+                        + postsByTag.size() + " tags");
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostSaved(Post post) {
+        if (!enabled || post.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            addPost(post.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onTagsSaved(Long postId, List<String> tags) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeTags(postId);
+            addPost(postId);
+            for (String tag : tags) {
+                addTag(postId, tag);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostDeleted(Long postId) {
+        if (!enabled || postId == null || postId > Integer.MAX_VALUE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeTags(postId);
+            allPosts.remove(postId.intValue());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Вычисляет множество постов, подходящих под теговую часть запроса.
+     * null - индекс не готов или в запросе нет тегов
+     */
+    public RoaringBitmap evaluate(SearchQuery query) {
+        if (!isReady() || !query.hasTagFilter()) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            RoaringBitmap result = null;
+
+            for (String tag : query.getTags()) {
+                result = and(result, postsByTag.get(tag));
+            }
+            for (List<String> group : query.getAnyOfTags()) {
+                RoaringBitmap anyOf = new RoaringBitmap();
+                for (String tag : group) {
+                    RoaringBitmap posts = postsByTag.get(tag);
+                    if (posts != null) {
+                        anyOf.or(posts);
+                    }
+                }
+                result = and(result, anyOf);
+            }
+            if (result == null) {
+                result = allPosts.clone();
+            }
+            for (String tag : query.getExcludedTags()) {
+                RoaringBitmap posts = postsByTag.get(tag);
+                if (posts != null) {
+                    result.andNot(posts);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static RoaringBitmap and(RoaringBitmap current, RoaringBitmap posts) {
+        if (posts == null) {
+            return new RoaringBitmap();
+        }
+        if (current == null) {
+            return posts.clone();
+        }
+        current.and(posts);
+        return current;
+    }
+
+    private void addPost(long postId) {
+        // Битовые множества адресуются int: при переполнении индекс отключается, поиск уходит в SQL
+        if (postId > Integer.MAX_VALUE) {
+            if (ready) {
+                System.err.println("✗ Tag bitmap index disabled: post id " + postId + " exceeds int range");
+            }
+            ready = false;
+            return;
+        }
+        allPosts.add((int) postId);
+    }
+
+    private void addTag(long postId, String tagName) {
+        if (tagName == null || tagName.trim().isEmpty() || postId > Integer.MAX_VALUE) {
+            return;
+        }
+        String tag = tagName.trim().toLowerCase();
+        postsByTag.computeIfAbsent(tag, t -> new RoaringBitmap()).add((int) postId);
+        tagsByPost.computeIfAbsent((int) postId, id -> new LinkedHashSet<>()).add(tag);
+    }
+
+    private void removeTags(long postId) {
+        if (postId > Integer.MAX_VALUE) {
+            return;
+        }
+        Set<String> tags = tagsByPost.remove((int) postId);
+        if (tags == null) {
+            return;
+        }
+        for (String tag : tags) {
+            RoaringBitmap posts = postsByTag.get(tag);
+            if (posts != null) {
+                posts.remove((int) postId);
+                if (posts.isEmpty()) {
+                    postsByTag.remove(tag);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package shm.yandex.practicum.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Словарь тегов в памяти: имя -> id и id -> имя.
+ * Таблица tags маленькая и почти не меняется, поэтому загружается целиком при старте,
+ * а чтение идет из ConcurrentHashMap без блокировок. Отсутствующие в словаре теги
+ * дочитываются из БД (или создаются) одним запросом на всю пачку и запоминаются.
+ * Внутри транзакции теги запоминаются только после ее фиксации: после отката в словаре
+ * не должно остаться id, которого нет в БД.
+ * Выключенный словарь ничего не запоминает и каждый раз обращается к БД
+ */
+@Component
+public class TagDictionary {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final Map<String, Long> idsByName = new ConcurrentHashMap<>();
+    private final Map<Long, String> namesById = new ConcurrentHashMap<>();
+
+    public TagDictionary(JdbcTemplate jdbcTemplate,
+                         @Value("${blog.tags.dictionary.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            reload();
+        }
+    }
+
+    /**
+     * Перечитывает все теги из БД
+     */
+    public void reload() {
+        Map<String, Long> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM tags",
+                (RowCallbackHandler) rs -> loaded.put(rs.getString("name"), rs.getLong("id")));
+        idsByName.clear();
+        namesById.clear();
+        if (enabled) {
+            loaded.forEach(this::put);
+        }
+        System.out.println("✓ Tag dictionary loaded: " + loaded.size() + " tags");
+    }
+
+    public int size() {
+        return idsByName.size();
+    }
+
+    /**
+     * id существующих тегов по именам (имена уже нормализованы). Несуществующие теги в результат не попадают
+     */
+    public Map<String, Long> findIds(Collection<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> missing = collectIds(names, ids);
+        if (!missing.isEmpty()) {
+            loadByNames(missing, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * id тегов по именам (имена уже нормализованы). Недостающие теги создаются одним пакетным MERGE.
+     * Создание сериализовано внутри приложения, поэтому параллельные saveTags с одним и тем же
+     * новым тегом получают одинаковый id; чтение известных тегов идет без блокировок
+     */
+    public Map<String, Long> resolveIds(Collection<String> names) {
+        Map<String, Long> ids = new HashMap<>();
+        List<String> missing = collectIds(names, ids);
+        if (missing.isEmpty()) {
+            return ids;
+        }
+
+        synchronized (this) {
+            // Пока ждали, тег мог создать другой поток
+            missing = collectIds(missing, ids);
+            if (missing.isEmpty()) {
+                return ids;
+            }
+
+            upsert(missing);
+            loadByNames(missing, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Имена тегов по id. Неизвестные словарю id дочитываются из БД одним запросом
+     */
+    public Map<Long, String> findNames(Collection<Long> ids) {
+        Map<Long, String> names = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : ids) {
+            String name = enabled ? namesById.get(id) : null;
+            if (name != null) {
+                names.put(id, name);
+            } else {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            String sql = "SELECT id, name FROM tags WHERE id IN ("
+                    + String.join(", ", Collections.nCopies(missing.size(), "?")) + ")";
+            Map<String, Long> loaded = new HashMap<>();
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                loaded.put(rs.getString("name"), rs.getLong("id"));
+                names.put(rs.getLong("id"), rs.getString("name"));
+            }, missing.toArray());
+            remember(loaded);
+        }
+        return names;
+    }
+
+    private List<String> collectIds(Collection<String> names, Map<String, Long> ids) {
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Long id = enabled ? idsByName.get(name) : null;
+            if (id != null) {
+                ids.put(name, id);
+            } else {
+                missing.add(name);
+            }
+        }
+        return missing;
+    }
+
+    // Ошибку пакета не перехватываем: в PostgreSQL транзакция после нее уже прервана
+    private void upsert(List<String> names) {
+        List<Object[]> upsertArgs = new ArrayList<>();
+        for (String name : names) {
+            upsertArgs.add(new Object[]{name});
+        }
+        jdbcTemplate.batchUpdate("""
+                MERGE INTO tags t
+                USING (VALUES (CAST(? AS VARCHAR(50)))) AS s(name)
+                ON t.name = s.name
+                WHEN NOT MATCHED THEN INSERT (name) VALUES (s.name)
+                """, upsertArgs);
+    }
+
+    private void loadByNames(List<String> names, Map<String, Long> ids) {
+        String sql = "SELECT id, name FROM tags WHERE name IN ("
+                + String.join(", ", Collections.nCopies(names.size(), "?")) + ")";
+        Map<String, Long> loaded = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) rs -> loaded.put(rs.getString("name"), rs.getLong("id")),
+                names.toArray());
+        ids.putAll(loaded);
+        remember(loaded);
+    }
+
+    // Строки, прочитанные в транзакции, могут быть ею же созданы - запоминаем их после фиксации
+    private void remember(Map<String, Long> loaded) {
+        if (!enabled || loaded.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    loaded.forEach(TagDictionary.this::put);
+                }
+            });
+        } else {
+            loaded.forEach(this::put);
+        }
+    }
+
+    private void put(String name, Long id) {
+        // Пара имя-id после создания тега не меняется, поэтому повторная запись безопасна
+        idsByName.putIfAbsent(name, id);
+        namesById.putIfAbsent(id, name);
+    }
+}
@@ -0,0 +1,75 @@
+package shm.yandex.practicum.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Разбивает русский и английский текст (в том числе markdown) на нормализованные термы:
+ * нижний регистр, ё -> е, без стоп-слов, с упрощенным отсечением окончаний
+ */
+public class TextAnalyzer {
+
+    private static final int MIN_STEM_LENGTH = 3;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "и", "в", "во", "на", "с", "со", "по", "к", "ко", "о", "об", "от", "до", "из", "у", "за", "для",
+            "не", "но", "а", "же", "ли", "бы", "что", "как", "это", "то", "так", "или", "его", "ее", "их",
+            "a", "an", "the", "and", "or", "of", "to", "in", "on", "at", "for", "by", "is", "are", "was",
+            "be", "it", "this", "that", "with", "as", "from"
+    );
+
+    // Окончания отсортированы по убыванию длины: отсекается самое длинное подходящее
+    private static final String[] RUSSIAN_ENDINGS = {
+            "иями",
+            "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ией", "иях",
+            "ах", "ях", "ой", "ей", "ий", "ый", "ая", "яя", "ое", "ее", "ые", "ие", "ов", "ев",
+            "ам", "ям", "ом", "ем", "ую", "юю", "ия",
+            "а", "я", "о", "е", "ы", "и", "у", "ю", "ь"
+    };
+
+    private static final String[] ENGLISH_ENDINGS = {
+            "ing", "ies", "ed", "es", "ly", "s"
+    };
+
+    /**
+     * Возвращает термы текста в порядке следования (индекс в списке - позиция терма)
+     */
+    public List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return terms;
+        }
+
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= normalized.length(); i++) {
+            char ch = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(ch)) {
+                token.append(ch);
+            } else if (!token.isEmpty()) {
+                String word = token.toString();
+                token.setLength(0);
+                if (!STOP_WORDS.contains(word)) {
+                    terms.add(stem(word));
+                }
+            }
+        }
+        return terms;
+    }
+
+    String stem(String word) {
+        String[] endings = isCyrillic(word) ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM_LENGTH) {
+                return word.substring(0, word.length() - ending.length());
+            }
+        }
+        return word;
+    }
+
+    private static boolean isCyrillic(String word) {
+        return Character.UnicodeBlock.of(word.charAt(word.length() - 1)) == Character.UnicodeBlock.CYRILLIC;
+    }
+}
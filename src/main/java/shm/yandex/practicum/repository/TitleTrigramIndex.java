@@ -0,0 +1,248 @@
+package shm.yandex.practicum.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import shm.yandex.practicum.model.Post;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Триграммный индекс заголовков постов в памяти.
+ * Позволяет найти посты, заголовок которых содержит подстроку (без учета регистра, как ILIKE '%...%'),
+ * не просматривая всю таблицу posts
+ */
+@Component
+public class TitleTrigramIndex implements PostWriteListener {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // id поста -> заголовок в нижнем регистре (для проверки кандидатов)
+    private final Map<Long, String> titles = new HashMap<>();
+    // триграмма -> отсортированный список id постов
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    private volatile boolean ready = false;
+
+    public TitleTrigramIndex(JdbcTemplate jdbcTemplate,
+                             @Value("${blog.search.title-index.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Индекс можно использовать для поиска: включен и построен
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Полностью перестраивает индекс по таблице posts
+     */
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            titles.clear();
+            postings.clear();
+            jdbcTemplate.query("SELECT id, title FROM posts ORDER BY id",
+                    (RowCallbackHandler) rs -> addTitle(rs.getLong("id"), rs.getString("title")));
+            ready = true;
+            System.out.println("✓ Title trigram index built: " + titles.size() + " posts");
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Добавляет или заменяет заголовок поста
+     */
+    @Override
+    public void onPostSaved(Post post) {
+        if (!enabled || post.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeTitle(post.getId());
+            addTitle(post.getId(), post.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPostDeleted(Long postId) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeTitle(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает отсортированные id постов, заголовок которых содержит подстроку.
+     * null - индекс не может сузить поиск (не готов или подстрока короче триграммы)
+     */
+    public List<Long> findCandidates(String substring) {
+        if (!isReady() || substring == null) {
+            return null;
+        }
+        String pattern = normalize(substring);
+        if (pattern.length() < 3) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<PostingList> lists = new ArrayList<>();
+            for (long trigram : trigrams(pattern)) {
+                PostingList list = postings.get(trigram);
+                if (list == null) {
+                    return List.of();
+                }
+                lists.add(list);
+            }
+            // Пересекаем, начиная с самого короткого списка
+            lists.sort(Comparator.comparingInt(PostingList::size));
+
+            long[] current = Arrays.copyOf(lists.getFirst().ids, lists.getFirst().size);
+            int currentSize = current.length;
+            for (int i = 1; i < lists.size() && currentSize > 0; i++) {
+                currentSize = lists.get(i).retainInto(current, currentSize);
+            }
+
+            // Триграммы могут совпасть и без вхождения подстроки - проверяем заголовок
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < currentSize; i++) {
+                String title = titles.get(current[i]);
+                if (title != null && title.contains(pattern)) {
+                    result.add(current[i]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addTitle(long postId, String title) {
+        String normalized = normalize(title);
+        titles.put(postId, normalized);
+        for (long trigram : trigrams(normalized)) {
+            postings.computeIfAbsent(trigram, t -> new PostingList()).add(postId);
+        }
+    }
+
+    private void removeTitle(long postId) {
+        String old = titles.remove(postId);
+        if (old == null) {
+            return;
+        }
+        for (long trigram : trigrams(old)) {
+            PostingList list = postings.get(trigram);
+            if (list != null) {
+                list.remove(postId);
+                if (list.size() == 0) {
+                    postings.remove(trigram);
+                }
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    // Три символа упаковываются в одно long-значение
+    private static Set<Long> trigrams(String text) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            result.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return result;
+    }
+
+    /**
+     * Отсортированный по возрастанию список id постов.
+     * Новые посты получают максимальный id, поэтому вставка обычно идет в конец
+     */
+    private static final class PostingList {
+        private long[] ids = new long[4];
+        private int size = 0;
+
+        int size() {
+            return size;
+        }
+
+        void add(long id) {
+            if (size > 0 && ids[size - 1] < id) {
+                ensureCapacity();
+                ids[size++] = id;
+                return;
+            }
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            int insertAt = -pos - 1;
+            ensureCapacity();
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+        }
+
+        void remove(long id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos < 0) {
+                return;
+            }
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+
+        /**
+         * Оставляет в target только id, присутствующие в этом списке. Возвращает новый размер
+         */
+        int retainInto(long[] target, int targetSize) {
+            int kept = 0;
+            for (int i = 0; i < targetSize; i++) {
+                if (Arrays.binarySearch(ids, 0, size, target[i]) >= 0) {
+                    target[kept++] = target[i];
+                }
+            }
+            return kept;
+        }
+
+        private void ensureCapacity() {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+        }
+    }
+}
@@ -2,30 +2,112 @@ package shm.yandex.practicum.service;
 
 import org.springframework.stereotype.Service;
 import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.model.CommentsPage;
 import shm.yandex.practicum.repository.CommentRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class CommentService {
 
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    // Ограничения пакетного запроса превью комментариев
+    public static final int DEFAULT_PREVIEW_SIZE = 3;
+    public static final int MAX_PREVIEW_POSTS = 100;
+    private static final int MAX_PREVIEW_SIZE = 20;
+
     private final CommentRepository commentRepository;
+    private final PostPageCache pageCache;
 
-    public CommentService(CommentRepository commentRepository) {
+    public CommentService(CommentRepository commentRepository, PostPageCache pageCache) {
         this.commentRepository = commentRepository;
+        this.pageCache = pageCache;
     }
 
     public List<Comment> getCommentsByPostId(Long postId) {
         return commentRepository.findByPostId(postId);
     }
 
+    /**
+     * Страница комментариев поста по курсору: after - следующие за комментарием с этим id,
+     * before - предшествующие ему. Лишняя запись в выборке показывает, есть ли еще комментарии
+     */
+    public CommentsPage getCommentsPage(Long postId, Long after, Long before, int limit) {
+        if (after != null && before != null) {
+            throw new IllegalArgumentException("Only one of after and before can be set");
+        }
+        if (limit < 1) limit = DEFAULT_PAGE_SIZE;
+        if (limit > MAX_PAGE_SIZE) limit = MAX_PAGE_SIZE;
+
+        // Счетчик comments_count идет только в total: страница всегда читается из comments,
+        // чтобы расхождение счетчика с таблицей не прятало комментарии
+        Integer count = commentRepository.findCommentsCount(postId);
+        int total = count != null ? count : 0;
+
+        List<Comment> comments = new ArrayList<>(commentRepository.findPageByPostId(postId, after, before, limit + 1));
+        boolean hasMore = comments.size() > limit;
+        if (hasMore) {
+            comments.remove(comments.size() - 1);
+        }
+
+        boolean hasPrev;
+        boolean hasNext;
+        if (before != null) {
+            // Выборка шла назад по убыванию id - возвращаем в прямом порядке
+            Collections.reverse(comments);
+            hasPrev = hasMore;
+            hasNext = true;
+        } else {
+            hasPrev = after != null;
+            hasNext = hasMore;
+        }
+
+        Long nextCursor = hasNext && !comments.isEmpty() ? comments.getLast().getId() : null;
+        Long prevCursor = hasPrev && !comments.isEmpty() ? comments.getFirst().getId() : null;
+        return new CommentsPage(comments, total, hasPrev, hasNext, nextCursor, prevCursor);
+    }
+
+    /**
+     * Первые perPost комментариев для каждого из постов одним запросом.
+     * В ответе есть каждый запрошенный пост (в порядке запроса), у поста без комментариев - пустой список
+     */
+    public Map<Long, List<Comment>> getFirstCommentsByPostIds(List<Long> postIds, int perPost) {
+        List<Long> ids = postIds.stream().filter(Objects::nonNull).distinct().toList();
+        if (ids.size() > MAX_PREVIEW_POSTS) {
+            throw new IllegalArgumentException("At most " + MAX_PREVIEW_POSTS + " post ids per request");
+        }
+        if (perPost < 1) perPost = DEFAULT_PREVIEW_SIZE;
+        if (perPost > MAX_PREVIEW_SIZE) perPost = MAX_PREVIEW_SIZE;
+
+        Map<Long, List<Comment>> result = new LinkedHashMap<>();
+        for (Long id : ids) {
+            result.put(id, new ArrayList<>());
+        }
+        for (Comment comment : commentRepository.findFirstByPostIds(ids, perPost)) {
+            result.get(comment.getPostId()).add(comment);
+        }
+        return result;
+    }
+
     public Comment addComment(Comment comment) {
         commentRepository.save(comment);
+        pageCache.onCommentsChanged(comment.getPostId());
         return comment;
     }
 
     public void deleteComment(Long id) {
+        // id поста нужен кэшу страниц, чтобы сбросить страницы со счетчиком комментариев этого поста
+        Comment comment = pageCache.isEnabled() ? commentRepository.findById(id) : null;
         commentRepository.delete(id);
+        if (comment != null) {
+            pageCache.onCommentsChanged(comment.getPostId());
+        }
     }
 
 
@@ -0,0 +1,51 @@
+package shm.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import shm.yandex.practicum.repository.CommentRepository;
+
+/**
+ * Фоновый пересчет posts.comments_count по таблице comments.
+ * Идет пачками по диапазонам id, каждая пачка - отдельный короткий UPDATE,
+ * поэтому таблица не блокируется целиком и исправление можно запускать на работающей системе
+ */
+@Component
+public class CommentsCountRepairJob {
+
+    private final CommentRepository commentRepository;
+    private final PostPageCache pageCache;
+    private final int batchSize;
+
+    public CommentsCountRepairJob(CommentRepository commentRepository,
+                                  PostPageCache pageCache,
+                                  @Value("${blog.repair.comments-count.batch-size:1000}") int batchSize) {
+        this.commentRepository = commentRepository;
+        this.pageCache = pageCache;
+        this.batchSize = batchSize;
+    }
+
+    // По умолчанию выключено ("-"), расписание задается blog.repair.comments-count.cron
+    @Scheduled(cron = "${blog.repair.comments-count.cron:-}")
+    public void scheduledRepair() {
+        repair();
+    }
+
+    /**
+     * Пересчитывает счетчики всех постов. Возвращает количество исправленных постов
+     */
+    public int repair() {
+        long maxId = commentRepository.findMaxPostId();
+        int fixed = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += batchSize) {
+            fixed += commentRepository.recalculateCommentsCount(fromId, fromId + batchSize - 1);
+        }
+
+        if (fixed > 0) {
+            // Какие страницы показывали старые значения, не отслеживаем - сбрасываем кэш целиком
+            pageCache.invalidateAll();
+            System.out.println("✓ comments_count repaired for " + fixed + " posts");
+        }
+        return fixed;
+    }
+}
@@ -0,0 +1,233 @@
+package shm.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Генератор синтетических данных для нагрузочного тестирования (профиль seed):
+ * ./gradlew bootRun --args='--spring.profiles.active=dev,seed --blog.seed.posts=1000000'
+ * <p>
+ * Популярность тегов распределена по Ципфу, число тегов у поста - от 0 до 8 (чаще 2-3),
+ * число комментариев - с длинным хвостом (логнормальное), длины заголовков и текстов - в пределах схемы.
+ * При одинаковых настройках и seed данные совпадают до байта. Запись - пакетными INSERT с явными id,
+ * после чего генераторы id таблиц переставляются за последний id.
+ * Выполняется до ApplicationReadyEvent, поэтому индексы в памяти строятся уже по сгенерированным данным
+ */
+@Component
+@Profile("seed")
+public class DatasetGenerator implements ApplicationRunner {
+
+    private static final String[] WORDS = {
+            "java", "spring", "kotlin", "docker", "postgres", "kafka", "linux", "gradle", "jvm", "rest",
+            "пост", "заметка", "опыт", "проект", "код", "ошибка", "релиз", "команда", "сервис", "данные",
+            "запрос", "индекс", "кэш", "поиск", "тест", "сборка", "память", "поток", "очередь", "метрика",
+            "как", "почему", "что", "новый", "быстрый", "большой", "простой", "еще", "снова", "итоги"
+    };
+    // Вес количества тегов у поста: 0, 1, 2, ... 8
+    private static final int[] TAGS_PER_POST_WEIGHTS = {5, 15, 25, 22, 15, 9, 5, 3, 1};
+    private static final int MAX_COMMENTS_PER_POST = 2000;
+    // Ограничения схемы: posts.title/text varchar(256), tags.name varchar(50)
+    private static final int MAX_TEXT_LENGTH = 256;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int posts;
+    private final int tags;
+    private final long seed;
+    private final double zipfExponent;
+    private final int batchSize;
+
+    public DatasetGenerator(JdbcTemplate jdbcTemplate,
+                            @Value("${blog.seed.posts:100000}") int posts,
+                            @Value("${blog.seed.tags:500}") int tags,
+                            @Value("${blog.seed.random-seed:42}") long seed,
+                            @Value("${blog.seed.zipf-exponent:1.1}") double zipfExponent,
+                            @Value("${blog.seed.batch-size:10000}") int batchSize) {
+        if (posts <= 0 || tags <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("blog.seed.posts, blog.seed.tags and blog.seed.batch-size must be > 0, got "
+                    + posts + ", " + tags + ", " + batchSize);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.posts = posts;
+        this.tags = tags;
+        this.seed = seed;
+        this.zipfExponent = zipfExponent;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        generate();
+    }
+
+    /**
+     * Очищает таблицы блога и заполняет их заново. Возвращает количество созданных комментариев
+     */
+    public long generate() {
+        long start = System.nanoTime();
+        Random random = new Random(seed);
+
+        jdbcTemplate.execute("DELETE FROM comments");
+        jdbcTemplate.execute("DELETE FROM post_tags");
+        jdbcTemplate.execute("DELETE FROM posts");
+        jdbcTemplate.execute("DELETE FROM tags");
+
+        List<Object[]> tagArgs = new ArrayList<>();
+        for (int t = 1; t <= tags; t++) {
+            tagArgs.add(new Object[]{(long) t, "tag" + t});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO tags(id, name) VALUES (?, ?)", tagArgs);
+
+        double[] tagCdf = zipfCdf(tags, zipfExponent);
+        int[] tagsPerPostCdf = cumulative(TAGS_PER_POST_WEIGHTS);
+
+        List<Object[]> postArgs = new ArrayList<>(batchSize);
+        List<Object[]> postTagArgs = new ArrayList<>();
+        List<Object[]> commentArgs = new ArrayList<>();
+        long commentId = 0;
+
+        for (long postId = 1; postId <= posts; postId++) {
+            String title = sentence(random, 20 + random.nextInt(100));
+            String text = sentence(random, 80 + random.nextInt(MAX_TEXT_LENGTH - 80 + 1));
+            int comments = commentsCount(random);
+            // Лайки коррелируют с обсуждаемостью, плюс шум
+            int likes = comments * (1 + random.nextInt(5)) + random.nextInt(10);
+            postArgs.add(new Object[]{postId, title, text, likes, comments});
+
+            // Тегов у поста не больше, чем всего тегов, иначе выбор неповторяющихся не закончится
+            int tagCount = Math.min(sample(random, tagsPerPostCdf), tags);
+            long[] postTags = new long[tagCount];
+            for (int i = 0; i < tagCount; i++) {
+                long tagId;
+                do {
+                    tagId = sampleZipf(random, tagCdf);
+                } while (contains(postTags, i, tagId));
+                postTags[i] = tagId;
+                postTagArgs.add(new Object[]{postId, tagId});
+            }
+
+            for (int c = 0; c < comments; c++) {
+                commentArgs.add(new Object[]{++commentId, sentence(random, 10 + random.nextInt(200)), postId});
+            }
+
+            if (postArgs.size() >= batchSize || postId == posts) {
+                flush(postArgs, postTagArgs, commentArgs);
+            }
+        }
+
+        restartIdentity("posts", posts + 1L);
+        restartIdentity("tags", tags + 1L);
+        restartIdentity("comments", commentId + 1);
+
+        System.out.println("✓ Dataset generated: " + posts + " posts, " + tags + " tags, " + commentId
+                + " comments in " + (System.nanoTime() - start) / 1_000_000 + " ms (seed " + seed + ")");
+        return commentId;
+    }
+
+    private void flush(List<Object[]> postArgs, List<Object[]> postTagArgs, List<Object[]> commentArgs) {
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO posts(id, title, text, likes_count, comments_count) VALUES (?, ?, ?, ?, ?)", postArgs);
+        if (!postTagArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO post_tags(post_id, tag_id) VALUES (?, ?)", postTagArgs);
+        }
+        if (!commentArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO comments(id, text, post_id) VALUES (?, ?, ?)", commentArgs);
+        }
+        postArgs.clear();
+        postTagArgs.clear();
+        commentArgs.clear();
+    }
+
+    // Следующий id, который выдаст bigserial. Синтаксис ALTER ... RESTART понимает H2, для PostgreSQL - setval
+    private void restartIdentity(String table, long nextId) {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if ("PostgreSQL".equalsIgnoreCase(database)) {
+            jdbcTemplate.queryForObject("SELECT setval(pg_get_serial_sequence(?, 'id'), ?, false)",
+                    Long.class, table, nextId);
+        } else {
+            jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + nextId);
+        }
+    }
+
+    // Количество комментариев: логнормальное распределение - у большинства постов 0-3, у единиц - сотни
+    private static int commentsCount(Random random) {
+        double value = Math.exp(0.3 + 1.4 * random.nextGaussian()) - 1;
+        return (int) Math.max(0, Math.min(MAX_COMMENTS_PER_POST, Math.floor(value)));
+    }
+
+    private static String sentence(Random random, int length) {
+        int target = Math.min(length, MAX_TEXT_LENGTH);
+        StringBuilder sb = new StringBuilder(target + 16);
+        while (sb.length() < target) {
+            if (!sb.isEmpty()) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sb.setLength(target);
+        sb.setCharAt(0, Character.toUpperCase(sb.charAt(0)));
+        return sb.toString().trim();
+    }
+
+    // Функция распределения Ципфа: вероятность тега ранга k пропорциональна 1 / k^s
+    private static double[] zipfCdf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int k = 1; k <= n; k++) {
+            sum += 1.0 / Math.pow(k, exponent);
+            cdf[k - 1] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+        return cdf;
+    }
+
+    // id тега = ранг популярности (1 - самый популярный)
+    private static long sampleZipf(Random random, double[] cdf) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cdf.length - 1) + 1L;
+    }
+
+    private static int[] cumulative(int[] weights) {
+        int[] cdf = new int[weights.length];
+        int sum = 0;
+        for (int i = 0; i < weights.length; i++) {
+            sum += weights[i];
+            cdf[i] = sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(Random random, int[] cdf) {
+        int value = random.nextInt(cdf[cdf.length - 1]);
+        for (int i = 0; i < cdf.length; i++) {
+            if (value < cdf[i]) {
+                return i;
+            }
+        }
+        return cdf.length - 1;
+    }
+
+    private static boolean contains(long[] values, int size, long value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,277 @@
+package shm.yandex.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Дисковый кэш объектов MinIO перед MinioService.getFile. Имена объектов неизменяемы
+ * (см. MinioService.generateFileName), поэтому запись устаревает только при удалении или перезаписи объекта -
+ * MinioService сбрасывает ее в uploadFile и deleteFile.
+ * <p>
+ * Объем ограничен в байтах, вытеснение - W-TinyLFU (сегментированный LRU с фильтром частоты) из Caffeine,
+ * файл вытесненной записи удаляется. Одновременные промахи по одному объекту скачивают его один раз:
+ * остальные запросы ждут ту же загрузку. Индекс восстанавливается по файлам каталога при старте.
+ * Метрики: blog.images.disk-cache.requests (result = hit/miss/coalesced), blog.images.disk-cache.bytes
+ * (source = disk/minio), blog.images.disk-cache.size (байты на диске)
+ */
+@Component
+public class ImageDiskCache {
+
+    // Имя объекта, которое можно использовать как имя файла без преобразования
+    private static final Pattern SAFE_NAME = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]{0,200}");
+    private static final String HASHED_PREFIX = "h-";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Вес записи в Caffeine - int, поэтому размер считаем в килобайтах
+    private static final int WEIGHT_UNIT = 1024;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Cache<String, Path> index;
+    private final Map<String, Download> downloads = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter diskBytes;
+    private final Counter minioBytes;
+
+    public ImageDiskCache(@Value("${blog.images.disk-cache.enabled:false}") boolean enabled,
+                          @Value("${blog.images.disk-cache.directory:${java.io.tmpdir}/blog-image-cache}") String directory,
+                          @Value("${blog.images.disk-cache.max-bytes:1073741824}") long maxBytes,
+                          MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.index = Caffeine.newBuilder()
+                .maximumWeight(Math.max(1, maxBytes / WEIGHT_UNIT))
+                .weigher((String name, Path file) -> weigh(file))
+                // Файл удаляем в потоке, который вытеснил запись, - иначе каталог временно превышает лимит
+                .executor(Runnable::run)
+                .removalListener((String name, Path file, RemovalCause cause) -> {
+                    // При замене записи файл тот же - удалять нельзя
+                    if (file != null && cause != RemovalCause.REPLACED) {
+                        deleteQuietly(file);
+                    }
+                })
+                .build();
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        this.coalesced = requests(meterRegistry, "coalesced");
+        this.diskBytes = bytes(meterRegistry, "disk");
+        this.minioBytes = bytes(meterRegistry, "minio");
+        Gauge.builder("blog.images.disk-cache.size", index,
+                        cache -> cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L) * WEIGHT_UNIT)
+                .description("Approximate size of cached images on disk")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        if (enabled) {
+            restore();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Открывает закэшированную копию объекта; при промахе скачивает ее через loader.
+     * Канал нужно закрыть; файл, вытесненный во время чтения, остается доступным через открытый канал
+     */
+    public FileChannel open(String name, ObjectLoader loader) throws Exception {
+        // Повтор - если запись вытеснили между поиском и открытием файла или объект изменился во время загрузки
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Path file = index.getIfPresent(name);
+            if (file == null) {
+                FileChannel channel = load(name, loader);
+                if (channel != null) {
+                    return channel;
+                }
+                continue;
+            }
+            try {
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+                hits.increment();
+                return channel;
+            } catch (NoSuchFileException e) {
+                index.asMap().remove(name, file);
+            }
+        }
+        throw new IOException("Image " + name + " changed while it was being cached");
+    }
+
+    /**
+     * Учитывает байты, отданные клиенту из кэша
+     */
+    public void recordServed(long bytes) {
+        diskBytes.increment(bytes);
+    }
+
+    /**
+     * Сбрасывает запись объекта; идущая загрузка этого объекта не попадет в кэш
+     */
+    public void invalidate(String name) {
+        if (!enabled) {
+            return;
+        }
+        Download download = downloads.get(name);
+        if (download != null) {
+            download.invalidated = true;
+        }
+        index.invalidate(name);
+    }
+
+    public long size() {
+        return index.estimatedSize();
+    }
+
+    // Возвращает канал скачанного файла или null, если запрос нужно повторить
+    private FileChannel load(String name, ObjectLoader loader) throws Exception {
+        Download download = new Download();
+        Download running = downloads.putIfAbsent(name, download);
+        if (running != null) {
+            coalesced.increment();
+            Path file;
+            try {
+                file = running.result.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+            try {
+                return file != null ? FileChannel.open(file, StandardOpenOption.READ) : null;
+            } catch (NoSuchFileException e) {
+                return null;
+            }
+        }
+
+        misses.increment();
+        try {
+            Path file = fileFor(name);
+            Path temp = directory.resolve(file.getFileName() + "." + UUID.randomUUID() + TEMP_SUFFIX);
+            try (InputStream in = loader.open()) {
+                minioBytes.increment(Files.copy(in, temp));
+            } catch (Exception e) {
+                deleteQuietly(temp);
+                throw e;
+            }
+            if (download.invalidated) {
+                // Объект удалили или перезаписали во время загрузки - скачанное могло устареть, запросы повторят загрузку
+                deleteQuietly(temp);
+                download.result.complete(null);
+                return null;
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Канал открываем до добавления в индекс: объект больше всего кэша вытесняется сразу,
+            // но этот запрос дочитает его через открытый канал
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            index.put(name, file);
+            if (download.invalidated) {
+                // Сброс пришел между проверкой выше и добавлением в индекс
+                index.asMap().remove(name, file);
+            }
+            download.result.complete(file);
+            return channel;
+        } catch (Exception e) {
+            download.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            downloads.remove(name, download);
+        }
+    }
+
+    private Path fileFor(String name) throws IOException {
+        Files.createDirectories(directory);
+        if (SAFE_NAME.matcher(name).matches() && !name.startsWith(HASHED_PREFIX) && !name.endsWith(TEMP_SUFFIX)) {
+            return directory.resolve(name);
+        }
+        return directory.resolve(HASHED_PREFIX + UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    // Файлы прошлого запуска снова попадают в индекс; недокачанные и хешированные имена удаляются
+    private void restore() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        int restored = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX) || name.startsWith(HASHED_PREFIX)) {
+                    deleteQuietly(file);
+                } else if (Files.isRegularFile(file)) {
+                    index.put(name, file);
+                    restored++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("✗ Image disk cache restore failed: " + e.getMessage());
+        }
+        System.out.println("✓ Image disk cache at " + directory + ": " + restored + " files restored");
+    }
+
+    private static int weigh(Path file) {
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, Files.size(file) / WEIGHT_UNIT + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("✗ Could not delete cached image " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("blog.images.disk-cache.requests")
+                .description("Image disk cache lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static Counter bytes(MeterRegistry registry, String source) {
+        return Counter.builder("blog.images.disk-cache.bytes")
+                .description("Image bytes served from disk or downloaded from MinIO into the cache")
+                .baseUnit("bytes")
+                .tag("source", source)
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    public interface ObjectLoader {
+        InputStream open() throws Exception;
+    }
+
+    private static class Download {
+        final CompletableFuture<Path> result = new CompletableFuture<>();
+        volatile boolean invalidated;
+    }
+}
@@ -0,0 +1,288 @@
+package shm.yandex.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.ServletOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш небольших горячих изображений вне кучи. Байты лежат в страницах фиксированного размера, нарезанных
+ * из direct ByteBuffer-слэбов, - сборщик мусора их не сканирует, а освободившиеся страницы переиспользуются.
+ * Слэбы выделяются по мере заполнения, общий объем ограничен blog.images.memory-cache.max-bytes.
+ * <p>
+ * Допуск учитывает размер: объекты больше max-object-bytes не кэшируются вовсе, а среди остальных
+ * вытеснение W-TinyLFU из Caffeine пускает новый объект, только если он запрашивается чаще вытесняемых.
+ * Запись, которую читает запрос, не освобождается до конца чтения (счетчик ссылок).
+ * Метрики: blog.images.memory-cache.requests (result = hit/miss), blog.images.memory-cache.hit-ratio,
+ * blog.images.memory-cache.resident (байты изображений) и blog.images.memory-cache.allocated (байты слэбов)
+ */
+@Component
+public class ImageMemoryCache {
+
+    private static final int PAGE_SIZE = 8 * 1024;
+    private static final int PAGES_PER_SLAB = 512;
+
+    private final boolean enabled;
+    private final long maxObjectBytes;
+    private final PagePool pool;
+    private final Cache<String, CachedImage> index;
+    private final AtomicLong residentBytes = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public ImageMemoryCache(@Value("${blog.images.memory-cache.enabled:false}") boolean enabled,
+                            @Value("${blog.images.memory-cache.max-bytes:67108864}") long maxBytes,
+                            @Value("${blog.images.memory-cache.max-object-bytes:262144}") long maxObjectBytes,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        // Один объект не может занять больше четверти кэша
+        this.maxObjectBytes = Math.min(maxObjectBytes, maxBytes / 4);
+        int totalPages = (int) Math.min(Integer.MAX_VALUE, maxBytes / PAGE_SIZE);
+        this.pool = new PagePool(totalPages);
+        // Запас в один максимальный объект: после вытеснения в пуле всегда есть страницы под следующий
+        long indexPages = Math.max(1, totalPages - pagesFor(this.maxObjectBytes));
+        this.index = Caffeine.newBuilder()
+                .maximumWeight(indexPages)
+                .weigher((String name, CachedImage image) -> image.pages.length)
+                .executor(Runnable::run)
+                .removalListener((String name, CachedImage image, RemovalCause cause) -> {
+                    if (image != null) {
+                        residentBytes.addAndGet(-image.length);
+                        image.release();
+                    }
+                })
+                .build();
+
+        this.hits = requests(meterRegistry, "hit");
+        this.misses = requests(meterRegistry, "miss");
+        Gauge.builder("blog.images.memory-cache.hit-ratio", this, ImageMemoryCache::hitRatio)
+                .description("Share of image requests served from off-heap memory")
+                .register(meterRegistry);
+        Gauge.builder("blog.images.memory-cache.resident", residentBytes, AtomicLong::get)
+                .description("Bytes of images held in the off-heap cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("blog.images.memory-cache.allocated", pool, p -> p.allocatedBytes())
+                .description("Bytes of direct memory reserved for cache slabs")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Изображение из кэша или null. Полученное изображение нужно освободить через {@link CachedImage#release()}
+     */
+    public CachedImage get(String name) {
+        CachedImage image = index.getIfPresent(name);
+        if (image != null && image.retain()) {
+            hits.increment();
+            return image;
+        }
+        misses.increment();
+        return null;
+    }
+
+    public boolean admits(long size) {
+        return enabled && size >= 0 && size <= maxObjectBytes;
+    }
+
+    /**
+     * Читает объект размером size в кэш и возвращает его как {@link #get}. Если объект не допускается
+     * или пул исчерпан, возвращает null, не открывая источник, - он остается у вызывающего кода.
+     * Открытый источник load закрывает всегда: и после чтения, и при ошибке
+     */
+    public CachedImage load(String name, long size, SourceOpener opener) throws Exception {
+        if (!admits(size)) {
+            return null;
+        }
+        ByteBuffer[] pages = pool.allocate(pagesFor(size));
+        if (pages == null) {
+            return null;
+        }
+        CachedImage image = new CachedImage(pages, size, pool);
+        try (ReadableByteChannel source = opener.open()) {
+            long remaining = size;
+            for (ByteBuffer page : pages) {
+                ByteBuffer target = page.duplicate();
+                target.limit((int) Math.min(PAGE_SIZE, remaining));
+                while (target.hasRemaining()) {
+                    if (source.read(target) < 0) {
+                        throw new EOFException("Image " + name + " is shorter than " + size + " bytes");
+                    }
+                }
+                remaining -= target.limit();
+            }
+        } catch (Exception e) {
+            image.release();
+            throw e;
+        }
+        // Ссылка для вызывающего кода; собственную ссылку кэша освободит вытеснение
+        image.retain();
+        residentBytes.addAndGet(image.length);
+        index.put(name, image);
+        return image;
+    }
+
+    public void invalidate(String name) {
+        if (enabled) {
+            index.invalidate(name);
+        }
+    }
+
+    public long size() {
+        return index.estimatedSize();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private static int pagesFor(long size) {
+        return (int) Math.max(1, (size + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    private static Counter requests(MeterRegistry registry, String result) {
+        return Counter.builder("blog.images.memory-cache.requests")
+                .description("Off-heap image cache lookups")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    public interface SourceOpener {
+        ReadableByteChannel open() throws Exception;
+    }
+
+    /**
+     * Изображение в страницах вне кучи
+     */
+    public static final class CachedImage {
+
+        private final ByteBuffer[] pages;
+        private final long length;
+        private final PagePool pool;
+        // Одна ссылка у кэша и по одной у каждого читающего запроса
+        private final AtomicInteger references = new AtomicInteger(1);
+
+        private CachedImage(ByteBuffer[] pages, long length, PagePool pool) {
+            this.pages = pages;
+            this.length = length;
+            this.pool = pool;
+        }
+
+        public long length() {
+            return length;
+        }
+
+        /**
+         * Пишет length байт начиная с offset. Страницы передаются в ServletOutputStream.write(ByteBuffer)
+         * без копирования в массив в куче; другие потоки получают их через канал
+         */
+        public void writeTo(OutputStream out, long offset, long length) throws IOException {
+            WritableByteChannel channel = out instanceof ServletOutputStream ? null : Channels.newChannel(out);
+            int page = (int) (offset / PAGE_SIZE);
+            int position = (int) (offset % PAGE_SIZE);
+            while (length > 0) {
+                ByteBuffer chunk = pages[page].duplicate();
+                chunk.position(position);
+                chunk.limit((int) Math.min(PAGE_SIZE, position + length));
+                length -= chunk.remaining();
+                if (channel == null) {
+                    ((ServletOutputStream) out).write(chunk);
+                } else {
+                    while (chunk.hasRemaining()) {
+                        channel.write(chunk);
+                    }
+                }
+                page++;
+                position = 0;
+            }
+        }
+
+        public void release() {
+            if (references.decrementAndGet() == 0) {
+                pool.free(pages);
+            }
+        }
+
+        // Не удается, если изображение уже вытеснено и его страницы вернулись в пул
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current == 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+    }
+
+    /**
+     * Пул страниц direct-памяти. Слэб выделяется, когда свободных страниц не хватает, и больше не освобождается
+     */
+    private static final class PagePool {
+
+        private final int totalPages;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private int allocatedPages;
+
+        PagePool(int totalPages) {
+            this.totalPages = totalPages;
+        }
+
+        synchronized ByteBuffer[] allocate(int count) {
+            while (free.size() < count && allocatedPages < totalPages) {
+                addSlab();
+            }
+            if (free.size() < count) {
+                return null;
+            }
+            ByteBuffer[] pages = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                pages[i] = free.pop();
+            }
+            return pages;
+        }
+
+        synchronized void free(ByteBuffer[] pages) {
+            for (ByteBuffer page : pages) {
+                free.push(page);
+            }
+        }
+
+        synchronized long allocatedBytes() {
+            return (long) allocatedPages * PAGE_SIZE;
+        }
+
+        private void addSlab() {
+            int pages = Math.min(PAGES_PER_SLAB, totalPages - allocatedPages);
+            ByteBuffer slab = ByteBuffer.allocateDirect(pages * PAGE_SIZE);
+            for (int i = 0; i < pages; i++) {
+                free.push(slab.slice(i * PAGE_SIZE, PAGE_SIZE));
+            }
+            allocatedPages += pages;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package shm.yandex.practicum.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Уменьшенные копии (рендишены) изображений постов: после загрузки оригинала в фоне строятся копии
+ * заданных размеров (blog.images.renditions.sizes = thumb=160x160,card=400x200,...) и сохраняются в MinIO
+ * под производными именами: post_1_1700000000000.png -> post_1_1700000000000_card.png.
+ * <p>
+ * Копии строит ограниченный пул потоков с ограниченной очередью: при переполнении задача отбрасывается,
+ * а копии построятся при следующем запросе. Пока копии нет, отдается оригинал.
+ * Строящиеся оригиналы хранятся отдельно от вытесняемого кэша состояний, поэтому вытеснение не прерывает
+ * построение; удаление оригинала во время построения отмечается в той же записи, и копии удаляются после загрузки.
+ * Для изображений, загруженных до включения рендишенов, копии строятся при первом запросе размера.
+ * Метрика blog.images.renditions.tasks (result = success/failed/rejected)
+ */
+@Component
+public class ImageRenditionService implements DisposableBean {
+
+    // Оригиналы больше этого числа пикселей не декодируются
+    private static final long MAX_SOURCE_PIXELS = 100_000_000L;
+    private static final Set<String> WRITABLE_FORMATS = Set.of("jpg", "jpeg", "png");
+
+    private enum State {READY, FAILED}
+
+    private final MinioService minioService;
+    private final boolean enabled;
+    private final Map<String, Rendition> renditions;
+    private final ThreadPoolExecutor executor;
+    // Оригинал -> состояние построенных копий; без записи состояние уточняется в MinIO
+    private final Cache<String, State> states = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .build();
+    // Оригиналы, копии которых строятся сейчас, -> удален ли оригинал за время построения.
+    // Не вытесняется: запись удаляет сама задача построения
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter succeeded;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public ImageRenditionService(MinioService minioService,
+                                 @Value("${blog.images.renditions.enabled:false}") boolean enabled,
+                                 @Value("${blog.images.renditions.sizes:thumb=160x160,card=400x200,full=1600x1600}") String sizes,
+                                 @Value("${blog.images.renditions.threads:2}") int threads,
+                                 @Value("${blog.images.renditions.queue-capacity:100}") int queueCapacity,
+                                 MeterRegistry meterRegistry) {
+        this.minioService = minioService;
+        this.enabled = enabled;
+        this.renditions = parseSizes(sizes);
+        this.executor = enabled ? newExecutor(threads, queueCapacity) : null;
+        this.succeeded = tasks(meterRegistry, "success");
+        this.failed = tasks(meterRegistry, "failed");
+        this.rejected = tasks(meterRegistry, "rejected");
+    }
+
+    public Set<String> sizeNames() {
+        return renditions.keySet();
+    }
+
+    /**
+     * Ставит построение копий оригинала в очередь. Не ждет построения
+     */
+    public void generate(String fileName) {
+        if (!enabled) {
+            return;
+        }
+        states.invalidate(fileName);
+        if (inFlight.putIfAbsent(fileName, false) == null) {
+            submit(fileName);
+        }
+    }
+
+    /**
+     * Имя объекта, которое нужно отдать на запрос размера size: копия, если она уже построена, иначе оригинал.
+     * Неизвестный размер - оригинал
+     */
+    public String resolve(String fileName, String size) {
+        Rendition rendition = size != null ? renditions.get(size) : null;
+        if (!enabled || rendition == null) {
+            return fileName;
+        }
+        String renditionName = renditionName(fileName, rendition.name());
+        State state = states.getIfPresent(fileName);
+        if (state == null && inFlight.containsKey(fileName)) {
+            return fileName;
+        }
+        if (state == null) {
+            // Состояние неизвестно (перезапуск или старое изображение) - проверяем MinIO
+            try {
+                if (minioService.fileExists(renditionName)) {
+                    states.put(fileName, State.READY);
+                    return renditionName;
+                }
+            } catch (Exception e) {
+                System.err.println("✗ Could not check rendition " + renditionName + ": " + e.getMessage());
+                return fileName;
+            }
+            // Одновременные запросы ставят построение в очередь один раз
+            if (inFlight.putIfAbsent(fileName, false) == null) {
+                submit(fileName);
+            }
+            return fileName;
+        }
+        return state == State.READY ? renditionName : fileName;
+    }
+
+    /**
+     * Удаляет копии оригинала из MinIO
+     */
+    public void delete(String fileName) {
+        if (!enabled) {
+            return;
+        }
+        // Строящиеся копии удалит задача построения, когда загрузит их
+        inFlight.computeIfPresent(fileName, (name, deleted) -> true);
+        states.invalidate(fileName);
+        deleteRenditions(fileName, renditions.keySet().stream().map(size -> renditionName(fileName, size)).toList());
+    }
+
+    /**
+     * post_1_1700000000000.png + card -> post_1_1700000000000_card.png. Остальные форматы (GIF, BMP и т.п.)
+     * сохраняются в JPEG
+     */
+    public static String renditionName(String fileName, String size) {
+        int dot = fileName.lastIndexOf('.');
+        String base = dot > 0 ? fileName.substring(0, dot) : fileName;
+        return base + "_" + size + "." + outputFormat(fileName);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void submit(String fileName) {
+        try {
+            executor.execute(() -> render(fileName));
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(fileName);
+            rejected.increment();
+            System.err.println("⚠ Rendition queue is full, skipped " + fileName);
+        }
+    }
+
+    private void render(String fileName) {
+        List<String> uploaded = new ArrayList<>();
+        State result = State.FAILED;
+        try {
+            BufferedImage source = readSource(fileName);
+            for (Rendition rendition : renditions.values()) {
+                String format = outputFormat(fileName);
+                BufferedImage scaled = scale(source, rendition, isJpeg(format));
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                if (!ImageIO.write(scaled, format, out)) {
+                    throw new IOException("No ImageIO writer for " + format);
+                }
+                String renditionName = renditionName(fileName, rendition.name());
+                minioService.uploadBytes(renditionName, out.toByteArray(),
+                        isJpeg(format) ? "image/jpeg" : "image/" + format);
+                uploaded.add(renditionName);
+            }
+            result = State.READY;
+            succeeded.increment();
+            System.out.println("✓ Renditions ready: " + fileName);
+        } catch (Exception e) {
+            failed.increment();
+            System.err.println("✗ Could not build renditions of " + fileName + ": " + e.getMessage());
+            // Неполный набор копий не оставляем
+            deleteRenditions(fileName, uploaded);
+        } finally {
+            // Состояние записывается до снятия отметки: delete() после нее сам удалит и состояние, и копии
+            states.put(fileName, result);
+            if (Boolean.TRUE.equals(inFlight.remove(fileName))) {
+                // Оригинал удалили, пока строились копии
+                states.invalidate(fileName);
+                if (result == State.READY) {
+                    deleteRenditions(fileName, uploaded);
+                }
+            }
+        }
+    }
+
+    // Большие оригиналы декодируются с прореживанием - в памяти не больше, чем нужно самой крупной копии
+    private BufferedImage readSource(String fileName) throws Exception {
+        try (InputStream in = minioService.getFile(fileName);
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IOException("Image is too large: " + width + "x" + height);
+                }
+                int step = subsampling(width, height);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Прореживание, после которого изображение остается хотя бы вдвое больше самой крупной копии
+    private int subsampling(int width, int height) {
+        int step = Integer.MAX_VALUE;
+        for (Rendition rendition : renditions.values()) {
+            step = Math.min(step, Math.min(width / (2 * rendition.width()), height / (2 * rendition.height())));
+        }
+        return Math.max(1, step);
+    }
+
+    // Вписывает изображение в рамку с сохранением пропорций; не увеличивает.
+    // Уменьшение идет шагами не больше чем вдвое - билинейная интерполяция иначе теряет детали
+    private static BufferedImage scale(BufferedImage source, Rendition rendition, boolean opaque) {
+        double ratio = Math.min(1.0, Math.min((double) rendition.width() / source.getWidth(),
+                (double) rendition.height() / source.getHeight()));
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                if (opaque) {
+                    // JPEG без альфа-канала: прозрачные области - белые
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, width, height);
+                }
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private void deleteRenditions(String fileName, List<String> names) {
+        for (String name : names) {
+            try {
+                minioService.deleteFile(name);
+            } catch (Exception e) {
+                System.err.println("Warning: Could not delete rendition " + name + " of " + fileName + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static String outputFormat(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        String extension = dot > 0 ? fileName.substring(dot + 1).toLowerCase() : "";
+        return WRITABLE_FORMATS.contains(extension) ? extension : "jpg";
+    }
+
+    private static boolean isJpeg(String format) {
+        return format.equals("jpg") || format.equals("jpeg");
+    }
+
+    // thumb=160x160,card=400x200 -> размеры в порядке объявления
+    private static Map<String, Rendition> parseSizes(String sizes) {
+        Map<String, Rendition> result = new LinkedHashMap<>();
+        for (String entry : sizes.split(",")) {
+            String[] parts = entry.trim().split("[=x]");
+            if (parts.length != 3 || !parts[0].matches("[a-z0-9-]+")) {
+                throw new IllegalArgumentException("Invalid rendition size: " + entry);
+            }
+            result.put(parts[0], new Rendition(parts[0], Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+        }
+        return result;
+    }
+
+    private static ThreadPoolExecutor newExecutor(int threads, int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), task -> {
+            Thread thread = new Thread(task, "image-rendition-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            // Построение копий не должно отнимать процессор у запросов
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static Counter tasks(MeterRegistry registry, String result) {
+        return Counter.builder("blog.images.renditions.tasks")
+                .description("Image rendition jobs")
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private record Rendition(String name, int width, int height) {
+    }
+}
@@ -0,0 +1,233 @@
+package shm.yandex.practicum.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.repository.PostRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Накопитель лайков с отложенной записью в БД.
+ * Клик увеличивает счетчик поста в памяти (LongAdder - распределенный по ячейкам счетчик, не блокирующий
+ * потоки при всплеске лайков одного поста), а flush периодически прибавляет накопленное к
+ * posts.likes_count одним пакетом атомарных UPDATE ... SET likes_count = likes_count + ?.
+ * Чтение возвращает значение из БД плюс еще не записанные лайки
+ */
+@Component
+public class LikeAggregator implements DisposableBean {
+
+    private final PostRepository postRepository;
+    private final PostPageCache pageCache;
+
+    // id поста -> лайки, накопленные с прошлого flush
+    private final ConcurrentHashMap<Long, LongAdder> pending = new ConcurrentHashMap<>();
+    // Приращения, которые прямо сейчас записываются в БД
+    private volatile Map<Long, Long> flushing = Map.of();
+    // Снятие счетчиков в flushing и чтение pending + flushing согласованы через StampedLock
+    private final StampedLock flushLock = new StampedLock();
+
+    // Снимки недавно лайкнутых постов: повторный клик не обращается к БД
+    private final ConcurrentHashMap<Long, Post> snapshots = new ConcurrentHashMap<>();
+
+    public LikeAggregator(PostRepository postRepository, PostPageCache pageCache) {
+        this.postRepository = postRepository;
+        this.pageCache = pageCache;
+    }
+
+    /**
+     * Добавляет лайк посту и возвращает пост с учетом всех лайков.
+     * null - поста нет. В БД обращаемся только при первом клике по посту, который давно не лайкали
+     */
+    public Post like(Long postId) {
+        Post snapshot = snapshots.get(postId);
+        if (snapshot == null) {
+            Post post = postRepository.findById(postId);
+            if (post == null) {
+                return null;
+            }
+            Post existing = snapshots.putIfAbsent(postId, post);
+            snapshot = existing != null ? existing : post;
+        }
+
+        add(postId, 1);
+        // Снимок и незаписанные лайки читаются согласованно с записью flush: либо снимок до записи
+        // вместе с flushing, либо записанное значение без него
+        long stamp = flushLock.tryOptimisticRead();
+        Post current = snapshots.getOrDefault(postId, snapshot);
+        long delta = sum(postId);
+        if (!flushLock.validate(stamp)) {
+            stamp = flushLock.readLock();
+            try {
+                current = snapshots.getOrDefault(postId, snapshot);
+                delta = sum(postId);
+            } finally {
+                flushLock.unlockRead(stamp);
+            }
+        }
+        return withLikes(current, likes(current) + delta);
+    }
+
+    /**
+     * Лайки поста, еще не записанные в БД
+     */
+    public long pendingDelta(Long postId) {
+        long stamp = flushLock.tryOptimisticRead();
+        long delta = sum(postId);
+        if (!flushLock.validate(stamp)) {
+            stamp = flushLock.readLock();
+            try {
+                delta = sum(postId);
+            } finally {
+                flushLock.unlockRead(stamp);
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Добавляет к посту незаписанные лайки (пост изменяется на месте)
+     */
+    public Post applyPending(Post post) {
+        if (post != null) {
+            long delta = pendingDelta(post.getId());
+            if (delta != 0) {
+                post.setLikesCount((int) (likes(post) + delta));
+            }
+        }
+        return post;
+    }
+
+    /**
+     * Список с учетом незаписанных лайков. Исходные объекты не изменяются -
+     * они могут быть общими (кэш страниц), посты с лайками заменяются копиями
+     */
+    public List<Post> withPending(List<Post> posts) {
+        List<Post> result = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            long delta = pendingDelta(post.getId());
+            result.add(delta == 0 ? post : withLikes(post, likes(post) + delta));
+        }
+        return result;
+    }
+
+    /**
+     * Пост изменен или удален - снимок больше не актуален
+     */
+    public void forget(Long postId) {
+        snapshots.remove(postId);
+    }
+
+    /**
+     * Записывает накопленные лайки в БД
+     */
+    @Scheduled(fixedDelayString = "${blog.likes.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<Long, Long> deltas = new HashMap<>();
+        long stamp = flushLock.writeLock();
+        try {
+            for (Map.Entry<Long, LongAdder> entry : pending.entrySet()) {
+                Long postId = entry.getKey();
+                LongAdder adder = entry.getValue();
+                // sumThenReset забирает каждую ячейку атомарно: клик либо попадает в этот пакет, либо остается в счетчике
+                long delta = adder.sumThenReset();
+                if (delta == 0 && pending.remove(postId, adder)) {
+                    // Счетчик простаивал - убираем; клик, успевший в него попасть, забираем сюда же
+                    delta = adder.sumThenReset();
+                }
+                if (delta != 0) {
+                    deltas.put(postId, delta);
+                }
+            }
+            flushing = deltas;
+        } finally {
+            flushLock.unlockWrite(stamp);
+        }
+
+        write(deltas);
+        // Снимки нужны только постам, которые лайкали с прошлого flush
+        snapshots.keySet().retainAll(pending.keySet());
+    }
+
+    /**
+     * При остановке приложения записываем все накопленное
+     */
+    @Override
+    public void destroy() {
+        flush();
+    }
+
+    private void write(Map<Long, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Map<Long, Integer> likes;
+        try {
+            likes = postRepository.addLikes(deltas);
+        } catch (RuntimeException e) {
+            // Пакет откатился целиком - возвращаем приращения в счетчики, ничего не теряем
+            System.err.println("Error flushing likes: " + e.getMessage());
+            long stamp = flushLock.writeLock();
+            try {
+                deltas.forEach(this::add);
+                flushing = Map.of();
+            } finally {
+                flushLock.unlockWrite(stamp);
+            }
+            return;
+        }
+
+        // Записанные значения и снятие flushing видны читателям одновременно - иначе только что
+        // записанные лайки на короткое время учитывались бы дважды
+        long stamp = flushLock.writeLock();
+        try {
+            likes.forEach((postId, newLikes) ->
+                    snapshots.computeIfPresent(postId, (id, post) -> withLikes(post, newLikes)));
+            flushing = Map.of();
+        } finally {
+            flushLock.unlockWrite(stamp);
+        }
+        likes.forEach((postId, newLikes) ->
+                pageCache.onLikesChanged(postId, (int) (newLikes - deltas.get(postId)), newLikes));
+    }
+
+    // Если счетчик убрали как простаивающий между computeIfAbsent и add, переносим значение в новый
+    private void add(Long postId, long delta) {
+        while (delta != 0) {
+            LongAdder adder = pending.computeIfAbsent(postId, id -> new LongAdder());
+            adder.add(delta);
+            if (pending.get(postId) == adder) {
+                return;
+            }
+            delta = adder.sumThenReset();
+        }
+    }
+
+    private long sum(Long postId) {
+        long delta = flushing.getOrDefault(postId, 0L);
+        LongAdder adder = pending.get(postId);
+        if (adder != null) {
+            delta += adder.sum();
+        }
+        return delta;
+    }
+
+    private static int likes(Post post) {
+        return post.getLikesCount() != null ? post.getLikesCount() : 0;
+    }
+
+    private static Post withLikes(Post post, long likes) {
+        Post copy = new Post(post.getId(), post.getTitle(), post.getText(), (int) likes,
+                post.getCommentsCount(), post.getImageFileName());
+        copy.setTags(post.getTags());
+        return copy;
+    }
+}
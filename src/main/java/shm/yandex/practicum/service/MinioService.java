@@ -6,12 +6,16 @@ import io.minio.http.Method;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import shm.yandex.practicum.jfr.MinioOperationEvent;
 
 import javax.annotation.PostConstruct;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class MinioService {
@@ -22,11 +26,18 @@ public class MinioService {
     @Value("${minio.bucket-name}")
     public String bucketName;
 
+    // post_<id>_<время загрузки в мс>.<расширение>
+    private static final Pattern GENERATED_FILE_NAME = Pattern.compile("post_\\d+_(\\d{1,18})\\.[^.]*");
+
     private final MinioClient minioClient;
+    private final ImageDiskCache diskCache;
+    private final ImageMemoryCache memoryCache;
     private volatile boolean bucketInitialized = false;
 
-    public MinioService(MinioClient minioClient) {
+    public MinioService(MinioClient minioClient, ImageDiskCache diskCache, ImageMemoryCache memoryCache) {
         this.minioClient = minioClient;
+        this.diskCache = diskCache;
+        this.memoryCache = memoryCache;
     }
 
     @PostConstruct
@@ -87,6 +98,8 @@ public class MinioService {
     public String uploadFile(MultipartFile file, String fileName) throws Exception {
         ensureBucketExists();
 
+        MinioOperationEvent event = MinioOperationEvent.start("upload", fileName);
+        boolean success = false;
         try (InputStream inputStream = file.getInputStream()) {
             minioClient.putObject(
                     PutObjectArgs.builder()
@@ -97,33 +110,130 @@ public class MinioService {
                             .build()
             );
 
+            // Перезаписанный объект не должен отдаваться из локальных копий
+            diskCache.invalidate(fileName);
+            memoryCache.invalidate(fileName);
             System.out.println("✓ File uploaded to MinIO: " + fileName);
+            success = true;
             return fileName;
+        } finally {
+            event.finish(file.getSize(), success);
+        }
+    }
+
+    /**
+     * Загружает в MinIO объект из памяти - небольшие производные файлы, например уменьшенные копии изображений
+     */
+    public void uploadBytes(String fileName, byte[] content, String contentType) throws Exception {
+        ensureBucketExists();
+
+        MinioOperationEvent event = MinioOperationEvent.start("upload", fileName);
+        boolean success = false;
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .stream(new ByteArrayInputStream(content), content.length, -1)
+                            .contentType(contentType)
+                            .build()
+            );
+            diskCache.invalidate(fileName);
+            memoryCache.invalidate(fileName);
+            success = true;
+        } finally {
+            event.finish(content.length, success);
         }
     }
 
     /**
-     * Получает файл из MinIO
+     * Получает файл из MinIO. Событие JFR покрывает запрос до получения заголовков ответа,
+     * само чтение потока - на стороне вызывающего кода
      */
     public InputStream getFile(String fileName) throws Exception {
-        return minioClient.getObject(
-                GetObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(fileName)
-                        .build()
-        );
+        MinioOperationEvent event = MinioOperationEvent.start("get", fileName);
+        GetObjectResponse response = null;
+        try {
+            response = minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .build()
+            );
+            return response;
+        } finally {
+            event.finish(event.isEnabled() ? contentLength(response) : 0, response != null);
+        }
+    }
+
+    /**
+     * Получает часть файла из MinIO (ranged GET): length байт начиная с offset
+     */
+    public InputStream getFile(String fileName, long offset, long length) throws Exception {
+        MinioOperationEvent event = MinioOperationEvent.start("get", fileName);
+        GetObjectResponse response = null;
+        try {
+            response = minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .offset(offset)
+                            .length(length)
+                            .build()
+            );
+            return response;
+        } finally {
+            event.finish(length, response != null);
+        }
+    }
+
+    /**
+     * Размер файла в байтах (stat без чтения содержимого)
+     */
+    public long getFileSize(String fileName) throws Exception {
+        MinioOperationEvent event = MinioOperationEvent.start("stat", fileName);
+        long size = -1;
+        try {
+            size = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .build()
+            ).size();
+            return size;
+        } finally {
+            event.finish(size, size >= 0);
+        }
+    }
+
+    private static long contentLength(GetObjectResponse response) {
+        String length = response != null ? response.headers().get("Content-Length") : null;
+        try {
+            return length != null ? Long.parseLong(length) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
     }
 
     /**
      * Удаляет файл из MinIO
      */
     public void deleteFile(String fileName) throws Exception {
-        minioClient.removeObject(
-                RemoveObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(fileName)
-                        .build()
-        );
+        MinioOperationEvent event = MinioOperationEvent.start("delete", fileName);
+        boolean success = false;
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .build()
+            );
+            success = true;
+        } finally {
+            event.finish(0, success);
+        }
+        diskCache.invalidate(fileName);
+        memoryCache.invalidate(fileName);
         System.out.println("✓ File deleted from MinIO: " + fileName);
     }
 
@@ -181,23 +291,35 @@ public class MinioService {
         return String.format("post_%d_%s%s", postId, timestamp, extension);
     }
 
+    /**
+     * Время загрузки из имени, созданного {@link #generateFileName}, или -1 для других имен
+     */
+    public static long parseUploadTime(String fileName) {
+        Matcher matcher = GENERATED_FILE_NAME.matcher(fileName);
+        return matcher.matches() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
     /**
      * Проверяет, существует ли файл
      */
     public boolean fileExists(String fileName) throws Exception {
+        MinioOperationEvent event = MinioOperationEvent.start("stat", fileName);
+        long size = -1;
         try {
-            minioClient.statObject(
+            size = minioClient.statObject(
                     StatObjectArgs.builder()
                             .bucket(bucketName)
                             .object(fileName)
                             .build()
-            );
+            ).size();
             return true;
         } catch (ErrorResponseException e) {
             if (e.errorResponse().code().equals("NoSuchKey")) {
                 return false;
             }
             throw e;
+        } finally {
+            event.finish(size, size >= 0);
         }
     }
 
@@ -205,12 +327,18 @@ public class MinioService {
      * Получает метаданные файла
      */
     public Map<String, String> getFileMetadata(String fileName) throws Exception {
-        StatObjectResponse stat = minioClient.statObject(
-                StatObjectArgs.builder()
-                        .bucket(bucketName)
-                        .object(fileName)
-                        .build()
-        );
+        MinioOperationEvent event = MinioOperationEvent.start("stat", fileName);
+        StatObjectResponse stat = null;
+        try {
+            stat = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(bucketName)
+                            .object(fileName)
+                            .build()
+            );
+        } finally {
+            event.finish(stat != null ? stat.size() : -1, stat != null);
+        }
 
         Map<String, String> metadata = new HashMap<>();
         metadata.put("contentType", stat.contentType());
@@ -0,0 +1,60 @@
+package shm.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import shm.yandex.practicum.model.ArchivedPost;
+import shm.yandex.practicum.repository.PostRepository;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Потоковая выгрузка блога в NDJSON (одна строка - один ArchivedPost), формат совместим с импортом.
+ * Строки пишутся в выходной поток по мере чтения курсоров - память не растет с числом постов
+ */
+@Service
+public class PostExportService {
+
+    private final PostRepository postRepository;
+    private final ObjectWriter writer;
+    private final int fetchSize;
+
+    public PostExportService(PostRepository postRepository,
+                             ObjectMapper objectMapper,
+                             @Value("${blog.export.fetch-size:500}") int fetchSize) {
+        this.postRepository = postRepository;
+        this.writer = objectMapper.writerFor(ArchivedPost.class);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Пишет все посты в поток. Возвращает количество выгруженных постов
+     */
+    public long exportPosts(OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        BufferedOutputStream out = new BufferedOutputStream(output, 64 * 1024);
+        long exported;
+        try {
+            exported = postRepository.exportAll(fetchSize, post -> {
+                try {
+                    out.write(writer.writeValueAsBytes(post));
+                    out.write('\n');
+                } catch (IOException e) {
+                    // Клиент закрыл соединение - прерываем чтение курсоров
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+
+        System.out.println("✓ Export finished: " + exported + " posts in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        return exported;
+    }
+}
@@ -0,0 +1,170 @@
+package shm.yandex.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import shm.yandex.practicum.model.ArchivedPost;
+import shm.yandex.practicum.model.ImportBatch;
+import shm.yandex.practicum.model.ImportReport;
+import shm.yandex.practicum.repository.PostRepository;
+import tools.jackson.core.JacksonException;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Потоковый импорт постов из NDJSON (одна строка - один ArchivedPost).
+ * Поток читается построчно, в памяти держится только текущая пачка;
+ * пачка пишется в БД пакетными INSERT в одной транзакции
+ */
+@Service
+public class PostImportService {
+
+    // Ограничения схемы: posts.title/text varchar(256), tags.name varchar(50)
+    private static final int MAX_TEXT_LENGTH = 256;
+    private static final int MAX_TAG_LENGTH = 50;
+    // Больше сообщений об ошибках в отчет не кладем - считаем только количество
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final PostRepository postRepository;
+    private final PostPageCache pageCache;
+    private final ObjectReader reader;
+    private final int defaultBatchSize;
+
+    public PostImportService(PostRepository postRepository,
+                             PostPageCache pageCache,
+                             ObjectMapper objectMapper,
+                             @Value("${blog.import.batch-size:1000}") int defaultBatchSize) {
+        this.postRepository = postRepository;
+        this.pageCache = pageCache;
+        this.reader = objectMapper.readerFor(ArchivedPost.class);
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    public ImportReport importPosts(InputStream input) throws IOException {
+        return importPosts(input, defaultBatchSize);
+    }
+
+    /**
+     * Импортирует посты из потока NDJSON пачками по batchSize.
+     * Некорректная строка пропускается и попадает в отчет, ошибка записи откатывает только свою пачку
+     */
+    public ImportReport importPosts(InputStream input, int batchSize) throws IOException {
+        if (batchSize < 1) batchSize = defaultBatchSize;
+
+        ImportReport report = new ImportReport();
+        long start = System.nanoTime();
+
+        List<ArchivedPost> batch = new ArrayList<>(batchSize);
+        long firstLine = 0;
+        long lineNumber = 0;
+
+        try (BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                report.setLines(report.getLines() + 1);
+
+                ArchivedPost post;
+                try {
+                    post = reader.readValue(line);
+                } catch (JacksonException e) {
+                    addError(report, lineNumber, "invalid JSON: " + e.getOriginalMessage());
+                    continue;
+                }
+                String problem = validate(post);
+                if (problem != null) {
+                    addError(report, lineNumber, problem);
+                    continue;
+                }
+
+                if (batch.isEmpty()) {
+                    firstLine = lineNumber;
+                }
+                batch.add(post);
+                if (batch.size() >= batchSize) {
+                    writeBatch(report, batch, firstLine, lineNumber);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(report, batch, firstLine, lineNumber);
+        }
+
+        if (report.getImported() > 0) {
+            // Новые посты могли попасть на любую страницу ленты
+            pageCache.invalidateAll();
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        report.setElapsedMs(elapsedNanos / 1_000_000);
+        report.setPostsPerSecond(elapsedNanos > 0 ? report.getImported() / (elapsedNanos / 1e9) : 0);
+        System.out.println("✓ Import finished: " + report.getImported() + " posts, " + report.getFailed()
+                + " failed, " + String.format("%.0f", report.getPostsPerSecond()) + " posts/sec");
+        return report;
+    }
+
+    private void writeBatch(ImportReport report, List<ArchivedPost> batch, long firstLine, long lastLine) {
+        int number = report.getBatches().size() + 1;
+        int comments = batch.stream().mapToInt(post -> post.getComments() != null ? post.getComments().size() : 0).sum();
+        long start = System.nanoTime();
+        try {
+            postRepository.importBatch(batch);
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            report.getBatches().add(new ImportBatch(number, firstLine, lastLine, batch.size(), comments, elapsedMs, null));
+            report.setImported(report.getImported() + batch.size());
+            report.setComments(report.getComments() + comments);
+            System.out.println("Import batch " + number + ": lines " + firstLine + "-" + lastLine
+                    + ", " + batch.size() + " posts in " + elapsedMs + " ms");
+        } catch (RuntimeException e) {
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            report.getBatches().add(new ImportBatch(number, firstLine, lastLine, 0, 0, elapsedMs, e.getMessage()));
+            report.setFailed(report.getFailed() + batch.size());
+            System.err.println("Import batch " + number + " failed (lines " + firstLine + "-" + lastLine + "): "
+                    + e.getMessage());
+        }
+    }
+
+    private static String validate(ArchivedPost post) {
+        if (post == null) {
+            return "empty post";
+        }
+        if (post.getTitle() == null || post.getTitle().isBlank()) {
+            return "title is required";
+        }
+        if (post.getText() == null) {
+            return "text is required";
+        }
+        if (post.getTitle().length() > MAX_TEXT_LENGTH || post.getText().length() > MAX_TEXT_LENGTH) {
+            return "title and text must be at most " + MAX_TEXT_LENGTH + " characters";
+        }
+        if (post.getTags() != null) {
+            for (String tag : post.getTags()) {
+                if (tag != null && tag.trim().length() > MAX_TAG_LENGTH) {
+                    return "tag longer than " + MAX_TAG_LENGTH + " characters: " + tag;
+                }
+            }
+        }
+        if (post.getComments() != null && post.getComments().contains(null)) {
+            return "comment text is required";
+        }
+        return null;
+    }
+
+    private static void addError(ImportReport report, long lineNumber, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < MAX_REPORTED_ERRORS) {
+            report.getErrors().add("line " + lineNumber + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package shm.yandex.practicum.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import shm.yandex.practicum.model.PageCacheStats;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.PostRepository;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш страниц ленты (посты страницы + общее количество) перед PostRepository.findPageWithTotal.
+ * Вытеснение по частоте обращений (W-TinyLFU) с ограничением по оценочному размеру в байтах.
+ * Устаревшая запись отдается сразу и перечитывается в фоне (stale-while-revalidate).
+ * Записи сбрасываются выборочно: только те, на которые могло повлиять изменение поста.
+ * Загрузка, которая еще идет, в кэше не видна и сброс пропускает; поэтому каждое изменение
+ * увеличивает счетчик записей, и страница, во время загрузки которой он изменился, в кэше не остается
+ */
+@Component
+public class PostPageCache {
+
+    // Оценка размера: заголовок и текст в UTF-16 плюс накладные расходы на объект поста
+    private static final int POST_OVERHEAD_BYTES = 128;
+
+    private final PostRepository postRepository;
+    private final boolean enabled;
+    private final LoadingCache<PageKey, CachedPage> cache;
+    // Увеличивается перед каждым сбросом
+    private final AtomicLong writes = new AtomicLong();
+
+    public PostPageCache(PostRepository postRepository,
+                         @Value("${blog.cache.posts.enabled:false}") boolean enabled,
+                         @Value("${blog.cache.posts.max-weight-bytes:16777216}") long maxWeightBytes,
+                         @Value("${blog.cache.posts.refresh-after-seconds:30}") long refreshAfterSeconds,
+                         @Value("${blog.cache.posts.expire-after-seconds:600}") long expireAfterSeconds) {
+        this.postRepository = postRepository;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeightBytes)
+                .weigher((PageKey key, CachedPage value) -> weigh(value.result))
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfterWrite(Duration.ofSeconds(expireAfterSeconds))
+                .recordStats()
+                .build(new CacheLoader<PageKey, CachedPage>() {
+                    @Override
+                    public CachedPage load(PageKey key) {
+                        long generation = writes.get();
+                        return new CachedPage(read(key), generation, false);
+                    }
+
+                    // Фоновое обновление Caffeine отбрасывает сам, если запись за это время сбросили
+                    @Override
+                    public CachedPage reload(PageKey key, CachedPage oldValue) {
+                        return new CachedPage(read(key), writes.get(), true);
+                    }
+                });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PostSearchResult findPageWithTotal(SearchQuery query, int pageNumber, int pageSize, boolean exactTotal) {
+        if (!enabled) {
+            return postRepository.findPageWithTotal(query, pageNumber, pageSize, exactTotal);
+        }
+        PageKey key = new PageKey(query, pageNumber, pageSize, exactTotal);
+        CachedPage page = cache.get(key);
+        if (!page.confirmed) {
+            // Счетчик не менялся с начала загрузки - все последующие сбросы эту запись уже видят
+            if (writes.get() == page.generation) {
+                page.confirmed = true;
+            } else {
+                // Страница могла быть прочитана до изменения, которое ее сбросило бы
+                cache.asMap().remove(key, page);
+            }
+        }
+        return page.result;
+    }
+
+    /**
+     * Пост создан (before == null), изменен или удален (after == null).
+     * Сбрасываются страницы запросов, в выборку которых пост входил или вошел,
+     * если изменилось количество или сам пост попадает на страницу либо пересекает ее при смене позиции
+     */
+    public void onPostChanged(Post before, Post after) {
+        if (!enabled) {
+            return;
+        }
+        writes.incrementAndGet();
+        cache.asMap().entrySet().removeIf(entry -> isAffected(entry.getKey(), entry.getValue().result, before, after));
+    }
+
+    /**
+     * Изменилось количество комментариев поста - порядок не меняется, сбрасываем страницы с этим постом
+     */
+    public void onCommentsChanged(Long postId) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        writes.incrementAndGet();
+        cache.asMap().values().removeIf(page -> containsPost(page.result, postId));
+    }
+
+    /**
+     * Лайки поста записаны в БД: likes_count изменился с oldLikes на newLikes.
+     * Теги и заголовок поста здесь неизвестны, поэтому проверяется только позиция:
+     * сбрасываются страницы, на которых пост есть или которые он пересек при смене позиции
+     */
+    public void onLikesChanged(Long postId, int oldLikes, int newLikes) {
+        if (!enabled || postId == null) {
+            return;
+        }
+        int upperLikes = Math.max(oldLikes, newLikes);
+        int lowerLikes = Math.min(oldLikes, newLikes);
+        writes.incrementAndGet();
+        cache.asMap().values().removeIf(page -> containsPost(page.result, postId)
+                || crossesPage(page.result.getPosts(), postId, upperLikes, lowerLikes));
+    }
+
+    public void invalidateAll() {
+        writes.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public PageCacheStats getStats() {
+        CacheStats stats = cache.stats();
+        return new PageCacheStats(enabled, stats.hitCount(), stats.missCount(), stats.hitRate(),
+                stats.evictionCount(), stats.evictionWeight(), cache.estimatedSize());
+    }
+
+    private static boolean isAffected(PageKey key, PostSearchResult result, Post before, Post after) {
+        boolean matchedBefore = before != null && matches(key.query(), before, before);
+        boolean matchesAfter = after != null && matches(key.query(), after, before);
+        if (matchedBefore != matchesAfter) {
+            // Пост вошел в выборку или покинул ее - меняется общее количество
+            return true;
+        }
+        if (!matchesAfter) {
+            return false;
+        }
+
+        // Состав выборки прежний: страница меняется, если пост на ней или прошел через нее при смене позиции
+        return crossesPage(result.getPosts(), after.getId(),
+                Math.max(likes(before), likes(after)), Math.min(likes(before), likes(after)));
+    }
+
+    // Отрезок позиций поста [upperLikes .. lowerLikes] пересекается с диапазоном страницы
+    private static boolean crossesPage(List<Post> posts, Long postId, int upperLikes, int lowerLikes) {
+        if (posts.isEmpty()) {
+            return false;
+        }
+        Post first = posts.getFirst();
+        Post last = posts.getLast();
+        return compare(upperLikes, postId, likes(last), last.getId()) <= 0
+                && compare(lowerLikes, postId, likes(first), first.getId()) >= 0;
+    }
+
+    // Порядок ленты: likes_count DESC, id ASC
+    private static int compare(int likesA, long idA, int likesB, long idB) {
+        int byLikes = Integer.compare(likesB, likesA);
+        return byLikes != 0 ? byLikes : Long.compare(idA, idB);
+    }
+
+    private static int likes(Post post) {
+        return post.getLikesCount() != null ? post.getLikesCount() : 0;
+    }
+
+    // Та же семантика, что у SQL-фильтра: теги поста и подстрока заголовка без учета регистра
+    private static boolean matches(SearchQuery query, Post post, Post before) {
+        // tags == null при обновлении - теги не менялись
+        List<String> postTags = post.getTags() != null ? post.getTags()
+                : before != null && before.getTags() != null ? before.getTags() : List.of();
+        List<String> tags = postTags.stream()
+                .filter(tag -> tag != null && !tag.trim().isEmpty())
+                .map(tag -> tag.trim().toLowerCase())
+                .toList();
+
+        if (!tags.containsAll(query.getTags())) {
+            return false;
+        }
+        for (List<String> group : query.getAnyOfTags()) {
+            if (group.stream().noneMatch(tags::contains)) {
+                return false;
+            }
+        }
+        if (query.getExcludedTags().stream().anyMatch(tags::contains)) {
+            return false;
+        }
+
+        String title = post.getTitle() != null ? post.getTitle().toLowerCase(Locale.ROOT) : "";
+        return title.contains(query.getTitleSubstring().toLowerCase(Locale.ROOT));
+    }
+
+    private static boolean containsPost(PostSearchResult result, Long postId) {
+        for (Post post : result.getPosts()) {
+            if (postId.equals(post.getId())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int weigh(PostSearchResult result) {
+        long bytes = POST_OVERHEAD_BYTES;
+        for (Post post : result.getPosts()) {
+            bytes += POST_OVERHEAD_BYTES;
+            bytes += 2L * (length(post.getTitle()) + length(post.getText()) + length(post.getImageFileName()));
+            if (post.getTags() != null) {
+                for (String tag : post.getTags()) {
+                    bytes += 2L * length(tag) + 40;
+                }
+            }
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private PostSearchResult read(PageKey key) {
+        return postRepository.findPageWithTotal(key.query(), key.pageNumber(), key.pageSize(), key.exactTotal());
+    }
+
+    // Ключ: нормализованная строка поиска и параметры страницы
+    private record PageKey(SearchQuery query, int pageNumber, int pageSize, boolean exactTotal) {
+    }
+
+    // Страница и значение счетчика записей на начало ее загрузки
+    private static final class CachedPage {
+
+        private final PostSearchResult result;
+        private final long generation;
+        // Изменений во время загрузки не было
+        private volatile boolean confirmed;
+
+        CachedPage(PostSearchResult result, long generation, boolean confirmed) {
+            this.result = result;
+            this.generation = generation;
+            this.confirmed = confirmed;
+        }
+    }
+}
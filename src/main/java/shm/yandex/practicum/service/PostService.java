@@ -1,50 +1,177 @@
 package shm.yandex.practicum.service;
 
 import org.springframework.stereotype.Service;
+import shm.yandex.practicum.model.PageCacheStats;
 import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostCursor;
+import shm.yandex.practicum.model.PostSearchResult;
 import shm.yandex.practicum.model.PostsPage;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.FullTextSearchIndex;
 import shm.yandex.practicum.repository.PostRepository;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class PostService {
 
+    // Сколько лучших результатов полнотекстового поиска участвуют в пагинации
+    private static final int MAX_FULLTEXT_RESULTS = 1000;
+
     private final PostRepository postRepository;
+    private final FullTextSearchIndex fullTextIndex;
+    private final PostPageCache pageCache;
+    private final LikeAggregator likeAggregator;
 
-    public PostService(PostRepository postRepository) {
+    public PostService(PostRepository postRepository, FullTextSearchIndex fullTextIndex, PostPageCache pageCache,
+                       LikeAggregator likeAggregator) {
         this.postRepository = postRepository;
+        this.fullTextIndex = fullTextIndex;
+        this.pageCache = pageCache;
+        this.likeAggregator = likeAggregator;
     }
 
     public PostsPage findPostsBySearchWithPagination(String search, int pageNumber, int pageSize) {
+        return findPostsBySearchWithPagination(search, pageNumber, pageSize, false);
+    }
+
+    /**
+     * Страница ленты по строке поиска. Посты и общее количество получаются одним запросом.
+     * При estimateTotal = true для широких запросов (без тегов, с короткой подстрокой или без нее)
+     * точный подсчет пропускается: lastPage тогда - нижняя оценка по наличию следующей страницы
+     */
+    public PostsPage findPostsBySearchWithPagination(String search, int pageNumber, int pageSize, boolean estimateTotal) {
         if (pageNumber < 1) pageNumber = 1;
         if (pageSize < 1) pageSize = 10;
 
-        // Получаем посты для текущей страницы
-        List<Post> posts = postRepository.findBySearchWithPagination(search, pageNumber, pageSize);
+        SearchQuery query = SearchQuery.parse(search);
+        boolean exactTotal = !(estimateTotal && query.isBroad());
 
-        // Считаем общее количество постов для поиска
-        int totalPosts = postRepository.countBySearch(search);
+        // Получаем посты текущей страницы вместе с общим количеством постов для поиска (через кэш страниц)
+        PostSearchResult result = pageCache.findPageWithTotal(query, pageNumber, pageSize, exactTotal);
 
         // Рассчитываем информацию о пагинации
-        int lastPage = (int) Math.ceil((double) totalPosts / pageSize);
         boolean hasPrev = pageNumber > 1;
-        boolean hasNext = pageNumber < lastPage;
+        boolean hasNext = result.isHasNext();
+        int lastPage;
+        if (result.getTotal() != null) {
+            lastPage = (int) Math.ceil((double) result.getTotal() / pageSize);
+        } else {
+            lastPage = hasNext ? pageNumber + 1 : pageNumber;
+        }
+
+        return new PostsPage(likeAggregator.withPending(result.getPosts()), hasPrev, hasNext, lastPage);
+    }
+
+    /**
+     * Полнотекстовый поиск по заголовку и тексту с ранжированием по BM25.
+     * Теги из строки поиска (#a, #a|b, -#a) дополнительно фильтруют результат до разбиения на страницы
+     */
+    public PostsPage findPostsByFullText(String search, int pageNumber, int pageSize) {
+        if (pageNumber < 1) pageNumber = 1;
+        if (pageSize < 1) pageSize = 10;
+
+        SearchQuery query = SearchQuery.parse(search);
+
+        // Индекс выключен/не построен или искать нечего, кроме тегов - обычный поиск
+        if (!fullTextIndex.isReady() || query.getWords().isEmpty()) {
+            return findPostsBySearchWithPagination(search, pageNumber, pageSize);
+        }
+
+        List<Long> rankedIds = fullTextIndex.search(query.getTitleSubstring(), MAX_FULLTEXT_RESULTS).stream()
+                .map(FullTextSearchIndex.ScoredPost::postId)
+                .toList();
+
+        if (query.hasTagFilter()) {
+            Set<Long> withTags = postRepository.findIdsMatchingTags(rankedIds, query);
+            rankedIds = rankedIds.stream().filter(withTags::contains).toList();
+        }
 
-        return new PostsPage(posts, hasPrev, hasNext, lastPage);
+        int total = rankedIds.size();
+        int from = Math.min((pageNumber - 1) * pageSize, total);
+        int to = Math.min(from + pageSize, total);
+        List<Post> posts = likeAggregator.withPending(postRepository.findByIds(rankedIds.subList(from, to)));
+
+        int lastPage = (int) Math.ceil((double) total / pageSize);
+        return new PostsPage(posts, pageNumber > 1, to < total, lastPage);
+    }
+
+    /**
+     * Keyset-пагинация: пустой курсор - первая страница, далее nextCursor/prevCursor из ответа.
+     * Стоимость запроса не зависит от глубины страницы
+     */
+    public PostsPage findPostsBySearchWithCursor(String search, String cursor, int pageSize) {
+        if (pageSize < 1) pageSize = 10;
+
+        PostCursor postCursor = (cursor == null || cursor.isBlank()) ? null : PostCursor.decode(cursor);
+        boolean backward = postCursor != null && postCursor.isBackward();
+
+        // Запрашиваем на одну запись больше, чтобы узнать, есть ли следующая страница
+        List<Post> posts = new ArrayList<>(
+                postRepository.findBySearchAfterCursor(SearchQuery.parse(search), postCursor, backward, pageSize + 1));
+        boolean hasMore = posts.size() > pageSize;
+        if (hasMore) {
+            posts = new ArrayList<>(posts.subList(0, pageSize));
+        }
+        if (backward) {
+            Collections.reverse(posts);
+        }
+
+        boolean hasPrev = backward ? hasMore : postCursor != null;
+        boolean hasNext = backward || hasMore;
+
+        // Курсоры строятся по строкам из БД: keyset-поиск сравнивает их с сохраненным likes_count,
+        // поэтому незаписанные лайки добавляются только в отдаваемый список
+        PostsPage page = new PostsPage(likeAggregator.withPending(posts), hasPrev, hasNext, null);
+        if (!posts.isEmpty()) {
+            if (hasNext) {
+                page.setNextCursor(PostCursor.after(posts.getLast()).encode());
+            }
+            if (hasPrev) {
+                page.setPrevCursor(PostCursor.before(posts.getFirst()).encode());
+            }
+        }
+        return page;
     }
 
 
     public void save(Post post) {
         postRepository.save(post);
+        pageCache.onPostChanged(null, post);
     }
     public void deletePost(Long id) {
+        // Прежнее состояние поста нужно кэшу страниц, чтобы сбросить только затронутые страницы
+        Post before = pageCache.isEnabled() ? postRepository.findById(id) : null;
         postRepository.deletePost(id);
+        likeAggregator.forget(id);
+        if (before != null) {
+            pageCache.onPostChanged(before, null);
+        }
     }
-    public Post findById(Long id) { return postRepository.findById(id); }
+    public Post findById(Long id) { return likeAggregator.applyPending(postRepository.findById(id)); }
 
     public void update(Post post) {
+        Post before = pageCache.isEnabled() ? findById(post.getId()) : null;
         postRepository.update(post);
+        likeAggregator.forget(post.getId());
+        if (before != null) {
+            pageCache.onPostChanged(before, post);
+        }
+    }
+
+    /**
+     * Лайк поста: накапливается в памяти и записывается в БД пакетом (LikeAggregator).
+     * Возвращает пост с учетом всех лайков или null, если поста нет
+     */
+    public Post like(Long id) {
+        return likeAggregator.like(id);
+    }
+
+    public PageCacheStats getPageCacheStats() {
+        return pageCache.getStats();
     }
 
 
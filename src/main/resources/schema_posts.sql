@@ -31,14 +31,21 @@ create table if not exists post_tags(
     foreign key (tag_id) references tags(id) on delete cascade
     );
 
+-- Индекс под сортировку ленты (likes_count DESC, id) и keyset-пагинацию
+create index if not exists idx_posts_likes_id on posts(likes_count desc, id);
+
+-- Индекс под курсорную пагинацию комментариев поста (post_id, id)
+create index if not exists idx_comments_post_id_id on comments(post_id, id);
+
 -- инициализация таблицы тегов
 insert into tags(name) values ('tag_1');
 insert into tags(name) values ('tag_2');
 insert into tags(name) values ('tag_3');
 
-insert into posts(title, text, likes_count, comments_count) values ('t_title_1 aaa', 'text_1', 1, 1);
+-- comments_count совпадает с количеством комментариев ниже
+insert into posts(title, text, likes_count, comments_count) values ('t_title_1 aaa', 'text_1', 1, 3);
 insert into posts(title, text, likes_count, comments_count) values ('t_title_12 aaa', 'text_2', 2, 2);
-insert into posts(title, text, likes_count, comments_count) values ('t_title_13 bbb', 'text_3', 3, 3);
+insert into posts(title, text, likes_count, comments_count) values ('t_title_13 bbb', 'text_3', 3, 1);
 
 -- связь постов с тегами
 insert into post_tags(post_id, tag_id) values (1, (select id from tags where name = 'tag_1'));
@@ -0,0 +1,99 @@
+package shm.yandex.practicum;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import okhttp3.Headers;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.configuration.BlogMetricsInterceptor;
+import shm.yandex.practicum.repository.CommentRepository;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.MinioService;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlogMetricsInterceptorTest {
+
+    private MeterRegistry registry;
+    private BlogMetricsInterceptor interceptor;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        interceptor = new BlogMetricsInterceptor(() -> registry);
+
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:blog_metrics_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+        jdbcTemplate.execute("INSERT INTO comments(text, post_id) VALUES ('к1', 1), ('к2', 1), ('к3', 2)");
+    }
+
+    @Test
+    void repositoryCalls_registerTimersAndRowCounts() {
+        // Given
+        CommentRepository repository = proxy(new CommentRepository(jdbcTemplate));
+
+        // When
+        repository.findByPostId(1L);
+        repository.findByPostId(2L);
+        jdbcTemplate.execute("DROP TABLE comments");
+        assertThrows(RuntimeException.class, () -> repository.findByPostId(1L));
+
+        // Then
+        Timer success = registry.find("blog.repository.calls")
+                .tags("component", "CommentRepository", "operation", "findByPostId", "outcome", "success")
+                .timer();
+        assertNotNull(success);
+        assertEquals(2, success.count());
+        assertEquals(1, registry.get("blog.repository.calls").tag("outcome", "error").timer().count());
+
+        DistributionSummary rows = registry.get("blog.repository.rows").tag("operation", "findByPostId").summary();
+        assertEquals(2, rows.count());
+        assertEquals(3, rows.totalAmount());
+    }
+
+    @Test
+    void minioCalls_countStreamedBytes() throws Exception {
+        // Given
+        byte[] image = new byte[10_000];
+        MinioClient client = mock(MinioClient.class);
+        when(client.getObject(any())).thenReturn(
+                new GetObjectResponse(Headers.of(), "images", null, "cover.png", new ByteArrayInputStream(image)));
+        MinioService target = new MinioService(client, mock(ImageDiskCache.class), mock(ImageMemoryCache.class));
+        target.bucketName = "images";
+        MinioService minioService = proxy(target);
+
+        // When
+        try (InputStream stream = minioService.getFile("cover.png")) {
+            stream.readAllBytes();
+        }
+
+        // Then
+        assertEquals(1, registry.get("blog.minio.calls").tag("operation", "getFile").timer().count());
+        assertEquals(image.length, registry.get("blog.minio.bytes").tag("direction", "download").counter().count());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T proxy(T target) {
+        ProxyFactory factory = new ProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return (T) factory.getProxy();
+    }
+}
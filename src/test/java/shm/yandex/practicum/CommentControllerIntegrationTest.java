@@ -71,7 +71,7 @@ public class CommentControllerIntegrationTest {
 
     @Test
     void getCommentsByPostId_returnsComments() throws Exception {
-        mockMvc.perform(get("/api/posts/1/comments"))
+        mockMvc.perform(get("/api/posts/1/comments").param("all", "true"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$", hasSize(2)))
@@ -79,6 +79,45 @@ public class CommentControllerIntegrationTest {
                 .andExpect(jsonPath("$[0].text").value("Second comment"));
     }
 
+    @Test
+    void getCommentsByPostId_returnsPageWithCursor() throws Exception {
+        mockMvc.perform(get("/api/posts/1/comments").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments", hasSize(1)))
+                .andExpect(jsonPath("$.comments[0].text").value("First comment"))
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.nextCursor").value(1));
+
+        mockMvc.perform(get("/api/posts/1/comments").param("limit", "1").param("after", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments[0].text").value("Second comment"))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.hasPrev").value(true))
+                .andExpect(jsonPath("$.prevCursor").value(2));
+
+        mockMvc.perform(get("/api/posts/1/comments").param("before", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.comments", hasSize(1)))
+                .andExpect(jsonPath("$.comments[0].text").value("First comment"))
+                .andExpect(jsonPath("$.hasPrev").value(false));
+    }
+
+    @Test
+    void getCommentsByPostId_afterAndBeforeTogetherIsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/posts/1/comments").param("after", "1").param("before", "2"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getFirstComments_returnsPreviewsForSeveralPosts() throws Exception {
+        mockMvc.perform(get("/api/comments").param("postIds", "1,2").param("perPost", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$['1']", hasSize(1)))
+                .andExpect(jsonPath("$['1'][0].text").value("First comment"))
+                .andExpect(jsonPath("$['2']", hasSize(0)));
+    }
+
     @Test
     void addComment_createsNewComment() throws Exception {
         String commentJson = "{\"text\": \"New comment\"}";
@@ -89,6 +128,13 @@ public class CommentControllerIntegrationTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.text").value("New comment"))
                 .andExpect(jsonPath("$.postId").value(1));
+
+        // Счетчик комментариев поста обновлен вместе с вставкой
+        Integer commentsCount = jdbcTemplate.queryForObject(
+                "SELECT comments_count FROM posts WHERE id = 1",
+                Integer.class
+        );
+        assertEquals(3, commentsCount);
     }
 
     @Test
@@ -103,5 +149,11 @@ public class CommentControllerIntegrationTest {
 
         assertNotNull(count);
         assertEquals(0, count);
+
+        Integer commentsCount = jdbcTemplate.queryForObject(
+                "SELECT comments_count FROM posts WHERE id = 1",
+                Integer.class
+        );
+        assertEquals(1, commentsCount);
     }
 }
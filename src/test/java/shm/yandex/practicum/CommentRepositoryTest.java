@@ -0,0 +1,112 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.repository.CommentRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommentRepositoryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CommentRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:comment_repository_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        repository = new CommentRepository(jdbcTemplate);
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table comments(
+                        id bigserial primary key,
+                        text text not null,
+                        post_id bigint not null,
+                        foreign key (post_id) references posts(id) on delete cascade
+                    )
+                """);
+
+        // Счетчики постов 2 и 3 намеренно не совпадают с комментариями
+        jdbcTemplate.execute("""
+                    INSERT INTO posts (id, title, text, likes_count, comments_count)
+                    VALUES (1, 'Пост 1', 'текст', 0, 1), (2, 'Пост 2', 'текст', 0, 5), (3, 'Пост 3', 'текст', 0, 0)
+                """);
+        jdbcTemplate.execute("""
+                    INSERT INTO comments (id, text, post_id)
+                    VALUES (1, 'Первый', 1), (2, 'Второй', 3), (3, 'Третий', 3)
+                """);
+        jdbcTemplate.execute("ALTER TABLE comments ALTER COLUMN id RESTART WITH 4");
+    }
+
+    @Test
+    void findFirstByPostIds_limitsCommentsPerPost() {
+        // Given
+        jdbcTemplate.execute("INSERT INTO comments (text, post_id) VALUES ('Четвертый', 3), ('Второй к 1', 1)");
+
+        // When
+        List<Comment> comments = repository.findFirstByPostIds(List.of(3L, 1L, 2L), 2);
+
+        // Then: по два первых комментария постов 1 и 3, у поста 2 комментариев нет
+        assertEquals(List.of(1L, 5L, 2L, 3L), comments.stream().map(Comment::getId).toList());
+        assertEquals(List.of(1L, 1L, 3L, 3L), comments.stream().map(Comment::getPostId).toList());
+    }
+
+    @Test
+    void save_incrementsCommentsCount() {
+        // When
+        Comment comment = repository.save(new Comment(null, "Новый", 1L));
+
+        // Then
+        assertNotNull(comment.getId());
+        assertEquals(2, commentsCount(1));
+    }
+
+    @Test
+    void delete_decrementsCommentsCountOnce() {
+        // When
+        repository.delete(1L);
+        repository.delete(1L);
+
+        // Then
+        assertEquals(0, commentsCount(1));
+    }
+
+    @Test
+    void recalculateCommentsCount_fixesOnlyRange() {
+        // When
+        int fixed = repository.recalculateCommentsCount(1, 2);
+
+        // Then
+        assertEquals(1, fixed);
+        assertEquals(1, commentsCount(1));
+        assertEquals(0, commentsCount(2));
+        assertEquals(0, commentsCount(3));
+
+        // When
+        fixed = repository.recalculateCommentsCount(3, repository.findMaxPostId());
+
+        // Then
+        assertEquals(1, fixed);
+        assertEquals(2, commentsCount(3));
+    }
+
+    private int commentsCount(long postId) {
+        return jdbcTemplate.queryForObject("SELECT comments_count FROM posts WHERE id = ?", Integer.class, postId);
+    }
+}
@@ -7,8 +7,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.model.CommentsPage;
 import shm.yandex.practicum.repository.CommentRepository;
 import shm.yandex.practicum.service.CommentService;
+import shm.yandex.practicum.service.PostPageCache;
 
 import java.util.Arrays;
 import java.util.List;
@@ -23,6 +25,9 @@ public class CommentServiceTest {
     @Mock
     private CommentRepository commentRepository;
 
+    @Mock
+    private PostPageCache pageCache;
+
     @InjectMocks
     private CommentService commentService;
 
@@ -172,4 +177,72 @@ public class CommentServiceTest {
         verify(commentRepository, times(1)).findById(commentId);
         verify(commentRepository, never()).update(any(Comment.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetCommentsPage_Forward() {
+        // Given: запрошено 2, репозиторий вернул 3 - есть следующая страница
+        Long postId = 10L;
+        when(commentRepository.findCommentsCount(postId)).thenReturn(5);
+        when(commentRepository.findPageByPostId(postId, null, null, 3)).thenReturn(testComments);
+
+        // When
+        CommentsPage page = commentService.getCommentsPage(postId, null, null, 2);
+
+        // Then
+        assertEquals(2, page.getComments().size());
+        assertEquals(5, page.getTotal());
+        assertTrue(page.isHasNext());
+        assertFalse(page.isHasPrev());
+        assertEquals(2L, page.getNextCursor());
+        assertNull(page.getPrevCursor());
+    }
+
+    @Test
+    void testGetCommentsPage_BackwardReturnsAscendingOrder() {
+        // Given: назад выборка идет по убыванию id
+        Long postId = 10L;
+        when(commentRepository.findCommentsCount(postId)).thenReturn(5);
+        when(commentRepository.findPageByPostId(postId, null, 4L, 3)).thenReturn(Arrays.asList(
+                new Comment(3L, "Third comment", 10L),
+                new Comment(2L, "Second comment", 10L)));
+
+        // When
+        CommentsPage page = commentService.getCommentsPage(postId, null, 4L, 2);
+
+        // Then
+        assertEquals(List.of(2L, 3L), page.getComments().stream().map(Comment::getId).toList());
+        assertFalse(page.isHasPrev());
+        assertTrue(page.isHasNext());
+        assertEquals(3L, page.getNextCursor());
+    }
+
+    @Test
+    void testGetCommentsPage_NoComments() {
+        // Given
+        when(commentRepository.findCommentsCount(999L)).thenReturn(null);
+        when(commentRepository.findPageByPostId(999L, null, null, 11)).thenReturn(List.of());
+
+        // When
+        CommentsPage page = commentService.getCommentsPage(999L, null, null, 10);
+
+        // Then
+        assertTrue(page.getComments().isEmpty());
+        assertEquals(0, page.getTotal());
+        assertFalse(page.isHasNext());
+    }
+
+    @Test
+    void testGetCommentsPage_StaleZeroCounterStillReturnsComments() {
+        // Given: счетчик отстал от таблицы
+        Long postId = 10L;
+        when(commentRepository.findCommentsCount(postId)).thenReturn(0);
+        when(commentRepository.findPageByPostId(postId, null, null, 11)).thenReturn(testComments);
+
+        // When
+        CommentsPage page = commentService.getCommentsPage(postId, null, null, 10);
+
+        // Then
+        assertEquals(testComments.size(), page.getComments().size());
+        assertEquals(0, page.getTotal());
+    }
+}
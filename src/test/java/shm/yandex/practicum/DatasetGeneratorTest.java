@@ -0,0 +1,114 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.service.DatasetGenerator;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatasetGeneratorTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:dataset_generator_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+    }
+
+    @Test
+    void generate_sameSeedGivesSameData() {
+        // When
+        long comments = generator(7).generate();
+        List<Map<String, Object>> firstRun = snapshot();
+        generator(7).generate();
+
+        // Then
+        assertEquals(firstRun, snapshot());
+        assertEquals(comments, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM comments", Long.class));
+
+        // When
+        generator(8).generate();
+
+        // Then
+        assertNotEquals(firstRun, snapshot());
+    }
+
+    @Test
+    void generate_keepsCountersAndDistributionsConsistent() {
+        // When
+        generator(42).generate();
+
+        // Then
+        assertEquals(2_000, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM posts p
+                    WHERE p.comments_count <> (SELECT COUNT(*) FROM comments c WHERE c.post_id = p.id)
+                """, Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM posts WHERE LENGTH(title) > 256 OR LENGTH(text) > 256", Integer.class));
+
+        // Популярность по Ципфу: первый тег встречается заметно чаще десятого
+        int top = postsWithTag(1);
+        int tenth = postsWithTag(10);
+        assertTrue(top > tenth * 3, "top=" + top + ", tenth=" + tenth);
+
+        // Генераторы id переставлены за сгенерированные данные
+        jdbcTemplate.update("INSERT INTO posts(title, text, likes_count, comments_count) VALUES ('новый', 'текст', 0, 0)");
+        assertEquals(2_001, jdbcTemplate.queryForObject("SELECT MAX(id) FROM posts", Integer.class));
+    }
+
+    @Test
+    void generate_fewerTagsThanTagsPerPost() {
+        // When: тегов меньше, чем может достаться одному посту
+        new DatasetGenerator(jdbcTemplate, 200, 2, 1, 1.1, 50).generate();
+
+        // Then
+        assertEquals(200, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Integer.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT post_id FROM post_tags GROUP BY post_id HAVING COUNT(*) > 2) t", Integer.class));
+    }
+
+    @Test
+    void constructor_rejectsNonPositiveSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(jdbcTemplate, 0, 100, 1, 1.1, 500));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(jdbcTemplate, 100, 0, 1, 1.1, 500));
+        assertThrows(IllegalArgumentException.class, () -> new DatasetGenerator(jdbcTemplate, 100, 100, 1, 1.1, 0));
+    }
+
+    private DatasetGenerator generator(long seed) {
+        return new DatasetGenerator(jdbcTemplate, 2_000, 100, seed, 1.1, 500);
+    }
+
+    private int postsWithTag(long tagId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM post_tags WHERE tag_id = ?", Integer.class, tagId);
+    }
+
+    private List<Map<String, Object>> snapshot() {
+        return jdbcTemplate.queryForList("""
+                    SELECT p.id, p.title, p.text, p.likes_count, p.comments_count,
+                           (SELECT LISTAGG(tag_id, ',') WITHIN GROUP (ORDER BY tag_id) FROM post_tags WHERE post_id = p.id) AS tags,
+                           (SELECT SUM(LENGTH(text)) FROM comments WHERE post_id = p.id) AS comment_chars
+                    FROM posts p ORDER BY p.id
+                """);
+    }
+}
@@ -0,0 +1,101 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.repository.FullTextSearchIndex;
+import shm.yandex.practicum.repository.TextAnalyzer;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FullTextSearchIndexTest {
+
+    private FullTextSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:fulltext_test;DB_CLOSE_DELAY=-1", "sa", ""));
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    INSERT INTO posts (id, title, text, likes_count, comments_count)
+                    VALUES
+                        (1, 'Заметки о походе', 'Весной мы ходили в горы. **Марафоны** по горам - отдельная история', 0, 0),
+                        (2, 'Горный марафон', 'Итоги забега', 0, 0),
+                        (3, 'Spring Boot testing', 'Writing tests with JDBC and H2', 0, 0)
+                """);
+
+        index = new FullTextSearchIndex(jdbcTemplate, true);
+        index.rebuild();
+    }
+
+    @Test
+    void analyzer_normalizesRussianAndEnglish() {
+        TextAnalyzer analyzer = new TextAnalyzer();
+
+        assertEquals(List.of("марафон", "гор"), analyzer.analyze("Марафоны в горах!"));
+        assertEquals(analyzer.analyze("марафон"), analyzer.analyze("МАРАФОНЫ"));
+        assertEquals(analyzer.analyze("ёлка"), analyzer.analyze("елки"));
+        assertEquals(analyzer.analyze("testing"), analyzer.analyze("tests"));
+        assertTrue(analyzer.analyze("the and в на").isEmpty());
+    }
+
+    @Test
+    void search_ranksTitleMatchAboveBodyMatch() {
+        // When
+        List<FullTextSearchIndex.ScoredPost> result = index.search("марафон", 10);
+
+        // Then
+        assertEquals(2, result.size());
+        assertEquals(2L, result.get(0).postId()); // В заголовке
+        assertEquals(1L, result.get(1).postId()); // Только в тексте
+        assertTrue(result.get(0).score() > result.get(1).score());
+    }
+
+    @Test
+    void search_findsWordsInMarkdownBody() {
+        assertEquals(3L, index.search("h2", 10).getFirst().postId());
+        assertEquals(1L, index.search("весна", 10).getFirst().postId());
+    }
+
+    @Test
+    void search_phraseRequiresAdjacentTerms() {
+        assertEquals(List.of(3L), index.search("\"spring boot\"", 10).stream()
+                .map(FullTextSearchIndex.ScoredPost::postId).toList());
+        assertTrue(index.search("\"boot spring\"", 10).isEmpty());
+    }
+
+    @Test
+    void writes_updateIndexIncrementally() {
+        // When
+        Post post = new Post(4L, "Марафон в Казани", "Новый забег", 0, 0, null);
+        index.onPostSaved(post);
+
+        // Then
+        assertEquals(3, index.search("марафон", 10).size());
+
+        // When
+        index.onPostDeleted(2L);
+        post.setTitle("Без совпадений");
+        index.onPostSaved(post);
+
+        // Then
+        assertEquals(List.of(1L), index.search("марафон", 10).stream()
+                .map(FullTextSearchIndex.ScoredPost::postId).toList());
+    }
+}
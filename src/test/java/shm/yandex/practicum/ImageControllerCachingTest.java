@@ -0,0 +1,132 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.controller.ImageController;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.ImageRenditionService;
+import shm.yandex.practicum.service.MinioService;
+import shm.yandex.practicum.service.PostService;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ImageControllerCachingTest {
+
+    private static final String FILE_NAME = "post_1_1700000000000.png";
+
+    private MinioService minioService;
+    private ImageController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PostService postService = mock(PostService.class);
+        minioService = mock(MinioService.class);
+        when(postService.findById(1L)).thenReturn(new Post(1L, "Пост", "текст", 0, 0, FILE_NAME));
+        when(postService.findById(2L)).thenReturn(new Post(2L, "Без картинки", "текст", 0, 0, null));
+        when(minioService.getFileSize(FILE_NAME)).thenReturn(3L);
+        controller = new ImageController(postService, minioService, mock(ImageDiskCache.class), mock(ImageMemoryCache.class),
+                mock(ImageRenditionService.class));
+    }
+
+    @Test
+    void getImage_sendsStrongEtagAndLastModifiedFromFileName() {
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, new HttpHeaders());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("\"" + FILE_NAME + "\"", response.getHeaders().getETag());
+        assertEquals(1700000000000L, response.getHeaders().getLastModified());
+        assertEquals("no-cache", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void getImage_versionedUrlIsImmutable() {
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, FILE_NAME, null, new HttpHeaders());
+
+        // Then
+        assertEquals("max-age=31536000, public, immutable", response.getHeaders().getCacheControl());
+    }
+
+    @Test
+    void getImage_matchingIfNoneMatchReturns304WithoutMinio() throws Exception {
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("W/\"other\", \"" + FILE_NAME + "\"");
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, headers);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals("\"" + FILE_NAME + "\"", response.getHeaders().getETag());
+        assertNull(response.getBody());
+        verifyNoInteractions(minioService);
+    }
+
+    @Test
+    void getImage_ifModifiedSinceUploadTimeReturns304() {
+        // Given
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfModifiedSince(1700000000000L);
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, headers);
+
+        // Then
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    }
+
+    @Test
+    void getImage_staleEtagStreamsNewImage() throws Exception {
+        // Given: в кэше браузера прежнее изображение поста
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"post_1_1600000000000.png\"");
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, headers);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(minioService).getFileSize(FILE_NAME);
+    }
+
+    @Test
+    void fallbackImage_isDeterministicAndCacheable() throws Exception {
+        // When
+        ResponseEntity<StreamingResponseBody> first = controller.getImage(2L, null, null, new HttpHeaders());
+        ResponseEntity<StreamingResponseBody> second = controller.getImage(2L, null, null, new HttpHeaders());
+
+        // Then
+        assertEquals(body(first), body(second));
+        assertEquals("\"post-2-placeholder\"", first.getHeaders().getETag());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(first.getHeaders().getETag());
+        assertEquals(HttpStatus.NOT_MODIFIED, controller.getImage(2L, null, null, headers).getStatusCode());
+        verify(minioService, never()).getFile(anyString());
+    }
+
+    @Test
+    void parseUploadTime_onlyForGeneratedNames() {
+        assertEquals(1700000000000L, MinioService.parseUploadTime(FILE_NAME));
+        assertEquals(-1, MinioService.parseUploadTime("file1.jpg"));
+    }
+
+    private static String body(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,196 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.controller.ImageController;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.ImageRenditionService;
+import shm.yandex.practicum.service.MinioService;
+import shm.yandex.practicum.service.PostService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ImageControllerStreamingTest {
+
+    private static final long IMAGE_SIZE = 50L * 1024 * 1024;
+
+    private MinioService minioService;
+    private ImageController controller;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        PostService postService = mock(PostService.class);
+        minioService = mock(MinioService.class);
+        when(postService.findById(1L)).thenReturn(new Post(1L, "Пост", "текст", 0, 0, "big.png"));
+        when(minioService.getFileSize("big.png")).thenReturn(IMAGE_SIZE);
+        when(minioService.getFile("big.png")).thenAnswer(invocation -> new SyntheticImageStream(IMAGE_SIZE));
+        controller = new ImageController(postService, minioService, mock(ImageDiskCache.class), mock(ImageMemoryCache.class),
+                mock(ImageRenditionService.class));
+    }
+
+    @Test
+    void getImage_setsContentLengthFromStat() throws Exception {
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, new HttpHeaders());
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(IMAGE_SIZE, response.getHeaders().getContentLength());
+        assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+        assertEquals("image/png", response.getHeaders().getContentType().toString());
+    }
+
+    @Test
+    void getImage_rangeRequestUsesRangedGet() throws Exception {
+        // Given
+        byte[] part = {10, 11, 12, 13, 14};
+        when(minioService.getFile("big.png", 10L, 5L)).thenReturn(new ByteArrayInputStream(part));
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, range("bytes=10-14"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 10-14/" + IMAGE_SIZE, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(5, response.getHeaders().getContentLength());
+        assertArrayEquals(part, out.toByteArray());
+        verify(minioService, never()).getFile("big.png");
+    }
+
+    @Test
+    void getImage_suffixRangeAndUnsatisfiableRange() throws Exception {
+        // Given
+        when(minioService.getFile(eq("big.png"), anyLong(), anyLong())).thenReturn(InputStream.nullInputStream());
+
+        // When: последние 100 байт
+        ResponseEntity<StreamingResponseBody> suffix = controller.getImage(1L, null, null, range("bytes=-100"));
+        ResponseEntity<StreamingResponseBody> outside = controller.getImage(1L, null, null, range("bytes=" + IMAGE_SIZE + "-"));
+
+        // Then
+        assertEquals("bytes " + (IMAGE_SIZE - 100) + "-" + (IMAGE_SIZE - 1) + "/" + IMAGE_SIZE,
+                suffix.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertEquals(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE, outside.getStatusCode());
+        assertEquals("bytes */" + IMAGE_SIZE, outside.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void getImage_heapStaysFlatWhenStreamingLargeImageConcurrently() throws Exception {
+        // Given
+        int requests = 100;
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+
+        AtomicLong peak = new AtomicLong(baseline);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                LockSupport.parkNanos(1_000_000);
+            }
+        });
+        sampler.start();
+
+        // When: 100 одновременных запросов 50 МБ изображения
+        AtomicLong written = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> {
+                controller.getImage(1L, null, null, new HttpHeaders()).getBody().writeTo(new DiscardingOutputStream(written));
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        running.set(false);
+        sampler.join();
+
+        // Then: целиком изображения заняли бы 5 ГБ, буферы потоков - около 6 МБ
+        assertEquals(requests * IMAGE_SIZE, written.get());
+        long growth = peak.get() - baseline;
+        assertTrue(growth < 256L * 1024 * 1024, "heap grew by " + growth / (1024 * 1024) + " MB");
+    }
+
+    private static HttpHeaders range(String value) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, value);
+        return headers;
+    }
+
+    // Поток заданного размера без выделения памяти под содержимое
+    private static class SyntheticImageStream extends InputStream {
+
+        private long remaining;
+
+        SyntheticImageStream(long size) {
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() {
+            if (remaining <= 0) {
+                return -1;
+            }
+            remaining--;
+            return 0;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = (int) Math.min(len, remaining);
+            remaining -= read;
+            return read;
+        }
+    }
+
+    private static class DiscardingOutputStream extends OutputStream {
+
+        private final AtomicLong written;
+
+        DiscardingOutputStream(AtomicLong written) {
+            this.written = written;
+        }
+
+        @Override
+        public void write(int b) {
+            written.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            written.addAndGet(len);
+        }
+    }
+}
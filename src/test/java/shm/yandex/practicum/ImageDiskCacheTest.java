@@ -0,0 +1,285 @@
+package shm.yandex.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.controller.ImageController;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.ImageRenditionService;
+import shm.yandex.practicum.service.MinioService;
+import shm.yandex.practicum.service.PostService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ImageDiskCacheTest {
+
+    private static final String FILE_NAME = "post_1_1700000000000.png";
+
+    @TempDir
+    Path dir;
+
+    private MeterRegistry registry;
+    private ImageDiskCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        cache = new ImageDiskCache(true, dir.toString(), 64 * 1024, registry);
+    }
+
+    @Test
+    void open_missDownloadsOnceThenServesFromDisk() throws Exception {
+        // Given
+        byte[] image = image(5_000, 1);
+        AtomicInteger downloads = new AtomicInteger();
+
+        // When
+        byte[] first = read(cache.open(FILE_NAME, () -> {
+            downloads.incrementAndGet();
+            return new ByteArrayInputStream(image);
+        }));
+        byte[] second = read(cache.open(FILE_NAME, () -> {
+            throw new AssertionError("MinIO must not be called on hit");
+        }));
+
+        // Then
+        assertArrayEquals(image, first);
+        assertArrayEquals(image, second);
+        assertEquals(1, downloads.get());
+        assertTrue(Files.exists(dir.resolve(FILE_NAME)));
+        assertEquals(1, requests("hit"));
+        assertEquals(1, requests("miss"));
+        assertEquals(image.length, registry.get("blog.images.disk-cache.bytes").tag("source", "minio").counter().count());
+    }
+
+    @Test
+    void open_concurrentMissesAreCoalesced() throws Exception {
+        // Given: загрузка держится, пока все запросы не придут за объектом
+        int requests = 16;
+        byte[] image = image(20_000, 2);
+        AtomicInteger downloads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ImageDiskCache.ObjectLoader slowLoader = () -> {
+            downloads.incrementAndGet();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return new ByteArrayInputStream(image);
+        };
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        List<Future<byte[]>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(executor.submit(() -> read(cache.open(FILE_NAME, slowLoader))));
+        }
+        while (requests("miss") + requests("coalesced") < requests) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        // Then
+        for (Future<byte[]> future : futures) {
+            assertArrayEquals(image, future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(1, downloads.get());
+        assertEquals(requests - 1, requests("coalesced"));
+    }
+
+    @Test
+    void open_evictsFilesOverCapacity() throws Exception {
+        // When: 10 объектов по 16 КБ в кэш на 64 КБ
+        for (int i = 0; i < 10; i++) {
+            byte[] image = image(16 * 1024, i);
+            read(cache.open("post_" + i + "_1.png", () -> new ByteArrayInputStream(image)));
+        }
+
+        // Then
+        long filesOnDisk;
+        try (var files = Files.list(dir)) {
+            filesOnDisk = files.count();
+        }
+        assertTrue(cache.size() <= 4, "entries: " + cache.size());
+        assertEquals(cache.size(), filesOnDisk);
+    }
+
+    @Test
+    void invalidate_removesFileAndNextRequestDownloadsAgain() throws Exception {
+        // Given
+        read(cache.open(FILE_NAME, () -> new ByteArrayInputStream(image(100, 1))));
+
+        // When
+        cache.invalidate(FILE_NAME);
+        byte[] replaced = image(200, 7);
+        byte[] after = read(cache.open(FILE_NAME, () -> new ByteArrayInputStream(replaced)));
+
+        // Then
+        assertArrayEquals(replaced, after);
+        assertEquals(2, requests("miss"));
+    }
+
+    @Test
+    void invalidate_duringDownloadDiscardsStaleCopy() throws Exception {
+        // Given: объект удаляют, пока идет его загрузка
+        byte[] stale = image(100, 1);
+        byte[] fresh = image(100, 9);
+        AtomicInteger downloads = new AtomicInteger();
+
+        // When
+        byte[] served = read(cache.open(FILE_NAME, () -> {
+            if (downloads.incrementAndGet() == 1) {
+                cache.invalidate(FILE_NAME);
+                return new ByteArrayInputStream(stale);
+            }
+            return new ByteArrayInputStream(fresh);
+        }));
+
+        // Then
+        assertArrayEquals(fresh, served);
+        assertEquals(2, downloads.get());
+    }
+
+    @Test
+    void failedDownloadLeavesNoFiles() throws Exception {
+        // When
+        assertThrows(IOException.class, () -> cache.open(FILE_NAME, () -> new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        }));
+
+        // Then
+        try (var files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void restart_restoresIndexAndDropsPartialDownloads() throws Exception {
+        // Given
+        byte[] image = image(1_000, 3);
+        read(cache.open(FILE_NAME, () -> new ByteArrayInputStream(image)));
+        Files.write(dir.resolve(FILE_NAME + ".1234.tmp"), new byte[10]);
+
+        // When
+        ImageDiskCache restarted = new ImageDiskCache(true, dir.toString(), 64 * 1024, new SimpleMeterRegistry());
+
+        // Then
+        assertEquals(1, restarted.size());
+        assertArrayEquals(image, read(restarted.open(FILE_NAME, () -> {
+            throw new AssertionError("restored entry must be a hit");
+        })));
+        assertFalse(Files.exists(dir.resolve(FILE_NAME + ".1234.tmp")));
+    }
+
+    @Test
+    void controller_servesRangeFromDiskWithoutMinio() throws Exception {
+        // Given
+        byte[] image = image(10_000, 5);
+        PostService postService = mock(PostService.class);
+        MinioService minioService = mock(MinioService.class);
+        when(postService.findById(1L)).thenReturn(new Post(1L, "Пост", "текст", 0, 0, FILE_NAME));
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> new ByteArrayInputStream(image));
+        ImageController controller = new ImageController(postService, minioService, cache, mock(ImageMemoryCache.class),
+                mock(ImageRenditionService.class));
+        controller.getImage(1L, null, null, new HttpHeaders()).getBody().writeTo(new ByteArrayOutputStream());
+        clearInvocations(minioService);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=100-199");
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, headers);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 100-199/" + image.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(image, 100, 200), out.toByteArray());
+        verify(minioService, never()).getFile(anyString());
+        verify(minioService, never()).getFile(anyString(), anyLong(), anyLong());
+        verify(minioService, never()).getFileSize(anyString());
+        assertEquals(image.length + 100,
+                registry.get("blog.images.disk-cache.bytes").tag("source", "disk").counter().count());
+    }
+
+    @Test
+    void controller_closesDiskChannelWhenResponseFails() throws Exception {
+        // Given: локальная копия открыта, затем чтение в память падает
+        byte[] image = image(1_000, 6);
+        Path file = Files.write(dir.resolve("copy.png"), image);
+        FileChannel channel = FileChannel.open(file);
+        PostService postService = mock(PostService.class);
+        ImageDiskCache diskCache = mock(ImageDiskCache.class);
+        ImageMemoryCache memoryCache = mock(ImageMemoryCache.class);
+        when(postService.findById(1L)).thenReturn(new Post(1L, "Пост", "текст", 0, 0, FILE_NAME));
+        when(diskCache.isEnabled()).thenReturn(true);
+        when(diskCache.open(eq(FILE_NAME), any())).thenReturn(channel);
+        when(memoryCache.admits(image.length)).thenReturn(true);
+        when(memoryCache.load(eq(FILE_NAME), eq((long) image.length), any())).thenThrow(new IOException("no memory"));
+        ImageController controller = new ImageController(postService, mock(MinioService.class), diskCache, memoryCache,
+                mock(ImageRenditionService.class));
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, new HttpHeaders());
+
+        // Then: отдана заглушка, канал закрыт
+        assertEquals("\"post-1-placeholder\"", response.getHeaders().getETag());
+        assertFalse(channel.isOpen());
+    }
+
+    private double requests(String result) {
+        return registry.get("blog.images.disk-cache.requests").tag("result", result).counter().count();
+    }
+
+    private static byte[] read(FileChannel channel) throws IOException {
+        try (channel) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // дочитываем файл целиком
+            }
+            return buffer.array();
+        }
+    }
+
+    private static byte[] image(int size, int seed) {
+        byte[] image = new byte[size];
+        for (int i = 0; i < size; i++) {
+            image[i] = (byte) (i * 31 + seed);
+        }
+        return image;
+    }
+}
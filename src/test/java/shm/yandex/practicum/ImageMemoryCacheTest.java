@@ -0,0 +1,213 @@
+package shm.yandex.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.controller.ImageController;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.ImageRenditionService;
+import shm.yandex.practicum.service.MinioService;
+import shm.yandex.practicum.service.PostService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ImageMemoryCacheTest {
+
+    private static final String FILE_NAME = "post_1_1700000000000.png";
+
+    private MeterRegistry registry;
+    private ImageMemoryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        // 1 МБ, объекты до 64 КБ
+        cache = new ImageMemoryCache(true, 1024 * 1024, 64 * 1024, registry);
+    }
+
+    @Test
+    void load_thenGetServesSameBytes() throws Exception {
+        // Given
+        byte[] image = image(20_000, 1);
+        cache.load(FILE_NAME, image.length, () -> source(image)).release();
+
+        // When
+        ImageMemoryCache.CachedImage cached = cache.get(FILE_NAME);
+
+        // Then
+        assertNotNull(cached);
+        assertEquals(image.length, cached.length());
+        assertArrayEquals(image, write(cached, 0, image.length));
+        cached.release();
+        assertEquals(image.length, registry.get("blog.images.memory-cache.resident").gauge().value());
+    }
+
+    @Test
+    void writeTo_rangeAcrossPages() throws Exception {
+        // Given: диапазон пересекает границы страниц по 8 КБ
+        byte[] image = image(30_000, 2);
+        ImageMemoryCache.CachedImage cached = cache.load(FILE_NAME, image.length, () -> source(image));
+
+        // When
+        byte[] part = write(cached, 8_000, 10_000);
+
+        // Then
+        assertArrayEquals(Arrays.copyOfRange(image, 8_000, 18_000), part);
+        cached.release();
+    }
+
+    @Test
+    void load_rejectsLargeObjectsWithoutReadingThem() throws Exception {
+        // When
+        ImageMemoryCache.CachedImage cached = cache.load("large.png", 65 * 1024, () -> {
+            throw new AssertionError("large image must not be read");
+        });
+
+        // Then
+        assertNull(cached);
+        assertFalse(cache.admits(65 * 1024));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void load_closesSourceOnSuccessAndFailure() throws Exception {
+        // Given
+        byte[] image = image(1_000, 6);
+        ReadableByteChannel full = source(image);
+        ReadableByteChannel truncated = source(Arrays.copyOf(image, 500));
+
+        // When
+        cache.load(FILE_NAME, image.length, () -> full).release();
+        assertThrows(EOFException.class, () -> cache.load("short.png", image.length, () -> truncated));
+
+        // Then
+        assertFalse(full.isOpen());
+        assertFalse(truncated.isOpen());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void residentBytesStayWithinBudget() throws Exception {
+        // When: 100 изображений по 40 КБ в кэш на 1 МБ
+        for (int i = 0; i < 100; i++) {
+            byte[] image = image(40 * 1024, i);
+            ImageMemoryCache.CachedImage cached = cache.load("post_" + i + "_1.png", image.length, () -> source(image));
+            if (cached != null) {
+                cached.release();
+            }
+        }
+
+        // Then
+        assertTrue(registry.get("blog.images.memory-cache.resident").gauge().value() <= 1024 * 1024);
+        assertTrue(registry.get("blog.images.memory-cache.allocated").gauge().value() <= 1024 * 1024);
+        assertTrue(cache.size() > 0);
+    }
+
+    @Test
+    void invalidatedImageStaysReadableUntilReleased() throws Exception {
+        // Given: запрос читает изображение, которое удаляют и на место которого загружают другие
+        byte[] image = image(20_000, 3);
+        ImageMemoryCache.CachedImage reading = cache.load(FILE_NAME, image.length, () -> source(image));
+
+        // When
+        cache.invalidate(FILE_NAME);
+        for (int i = 0; i < 40; i++) {
+            byte[] other = image(40 * 1024, 100 + i);
+            ImageMemoryCache.CachedImage cached = cache.load("post_" + i + "_2.png", other.length, () -> source(other));
+            if (cached != null) {
+                cached.release();
+            }
+        }
+
+        // Then: страницы читаемого изображения не переиспользованы
+        assertNull(cache.get(FILE_NAME));
+        assertArrayEquals(image, write(reading, 0, image.length));
+        reading.release();
+    }
+
+    @Test
+    void hitRatioGauge() throws Exception {
+        // Given
+        byte[] image = image(1_000, 4);
+        cache.get(FILE_NAME);
+        cache.load(FILE_NAME, image.length, () -> source(image)).release();
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            cache.get(FILE_NAME).release();
+        }
+
+        // Then
+        assertEquals(0.75, registry.get("blog.images.memory-cache.hit-ratio").gauge().value(), 1e-9);
+    }
+
+    @Test
+    void controller_servesSmallImageFromMemoryWithoutMinio() throws Exception {
+        // Given
+        byte[] image = image(10_000, 5);
+        PostService postService = mock(PostService.class);
+        MinioService minioService = mock(MinioService.class);
+        when(postService.findById(1L)).thenReturn(new Post(1L, "Пост", "текст", 0, 0, FILE_NAME));
+        when(minioService.getFileSize(FILE_NAME)).thenReturn((long) image.length);
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> new ByteArrayInputStream(image));
+        ImageController controller = new ImageController(postService, minioService, mock(ImageDiskCache.class), cache,
+                mock(ImageRenditionService.class));
+        assertArrayEquals(image, body(controller.getImage(1L, null, null, new HttpHeaders())));
+        clearInvocations(minioService);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=9000-");
+
+        // When
+        ResponseEntity<StreamingResponseBody> response = controller.getImage(1L, null, null, headers);
+
+        // Then
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertArrayEquals(Arrays.copyOfRange(image, 9_000, image.length), body(response));
+        verify(minioService, never()).getFile(anyString());
+        verify(minioService, never()).getFile(anyString(), anyLong(), anyLong());
+        verify(minioService, never()).getFileSize(anyString());
+    }
+
+    private static ReadableByteChannel source(byte[] image) {
+        return Channels.newChannel(new ByteArrayInputStream(image));
+    }
+
+    private static byte[] write(ImageMemoryCache.CachedImage cached, long offset, long length) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        cached.writeTo(out, offset, length);
+        return out.toByteArray();
+    }
+
+    private static byte[] body(ResponseEntity<StreamingResponseBody> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        response.getBody().writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static byte[] image(int size, int seed) {
+        byte[] image = new byte[size];
+        for (int i = 0; i < size; i++) {
+            image[i] = (byte) (i * 31 + seed);
+        }
+        return image;
+    }
+}
@@ -0,0 +1,294 @@
+package shm.yandex.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import shm.yandex.practicum.controller.ImageController;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.service.ImageDiskCache;
+import shm.yandex.practicum.service.ImageMemoryCache;
+import shm.yandex.practicum.service.ImageRenditionService;
+import shm.yandex.practicum.service.MinioService;
+import shm.yandex.practicum.service.PostService;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ImageRenditionServiceTest {
+
+    private static final String FILE_NAME = "post_1_1700000000000.png";
+
+    private MeterRegistry registry;
+    private MinioService minioService;
+    private ImageRenditionService service;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        minioService = mock(MinioService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.destroy();
+        }
+    }
+
+    @Test
+    void generate_uploadsEverySizeFittedIntoItsBox() throws Exception {
+        // Given
+        byte[] original = png(1200, 600);
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> new ByteArrayInputStream(original));
+        service = new ImageRenditionService(minioService, true, "thumb=160x160,card=400x200", 1, 10, registry);
+
+        // When
+        service.generate(FILE_NAME);
+        await(() -> !service.resolve(FILE_NAME, "card").equals(FILE_NAME));
+
+        // Then
+        ArgumentCaptor<String> names = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<byte[]> contents = ArgumentCaptor.forClass(byte[].class);
+        verify(minioService, times(2)).uploadBytes(names.capture(), contents.capture(), eq("image/png"));
+        Map<String, BufferedImage> uploaded = new HashMap<>();
+        for (int i = 0; i < 2; i++) {
+            uploaded.put(names.getAllValues().get(i), ImageIO.read(new ByteArrayInputStream(contents.getAllValues().get(i))));
+        }
+        assertEquals(160, uploaded.get("post_1_1700000000000_thumb.png").getWidth());
+        assertEquals(80, uploaded.get("post_1_1700000000000_thumb.png").getHeight());
+        assertEquals(400, uploaded.get("post_1_1700000000000_card.png").getWidth());
+        assertEquals(200, uploaded.get("post_1_1700000000000_card.png").getHeight());
+        assertEquals("post_1_1700000000000_card.png", service.resolve(FILE_NAME, "card"));
+        assertEquals(1, registry.get("blog.images.renditions.tasks").tag("result", "success").counter().count());
+    }
+
+    @Test
+    void resolve_servesOriginalUntilRenditionIsBuiltAndSchedulesItOnce() throws Exception {
+        // Given: старое изображение без копий, построение задерживается
+        byte[] original = png(800, 800);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> {
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return new ByteArrayInputStream(original);
+        });
+        service = new ImageRenditionService(minioService, true, "thumb=160x160", 1, 10, registry);
+
+        // When
+        List<String> served = List.of(
+                service.resolve(FILE_NAME, "thumb"),
+                service.resolve(FILE_NAME, "thumb"),
+                service.resolve(FILE_NAME, "thumb"));
+        release.countDown();
+        await(() -> !service.resolve(FILE_NAME, "thumb").equals(FILE_NAME));
+
+        // Then
+        assertEquals(List.of(FILE_NAME, FILE_NAME, FILE_NAME), served);
+        verify(minioService, times(1)).fileExists("post_1_1700000000000_thumb.png");
+        verify(minioService, times(1)).getFile(FILE_NAME);
+    }
+
+    @Test
+    void resolve_existingRenditionInMinioIsServedWithoutRebuilding() throws Exception {
+        // Given
+        when(minioService.fileExists("post_1_1700000000000_card.png")).thenReturn(true);
+        service = new ImageRenditionService(minioService, true, "card=400x200", 1, 10, registry);
+
+        // When
+        String served = service.resolve(FILE_NAME, "card");
+
+        // Then
+        assertEquals("post_1_1700000000000_card.png", served);
+        assertEquals(FILE_NAME, service.resolve(FILE_NAME, "poster"));
+        verify(minioService, never()).getFile(anyString());
+    }
+
+    @Test
+    void generate_rejectsTasksBeyondQueueCapacity() throws Exception {
+        // Given: один поток занят, в очереди одно место
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioService.getFile(anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return new ByteArrayInputStream(png(10, 10));
+        });
+        service = new ImageRenditionService(minioService, true, "thumb=160x160", 1, 1, registry);
+
+        // When
+        service.generate("post_1_1.png");
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        service.generate("post_2_1.png");
+        service.generate("post_3_1.png");
+        release.countDown();
+
+        // Then
+        assertEquals(1, registry.get("blog.images.renditions.tasks").tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    void generate_unreadableImageIsMarkedFailed() throws Exception {
+        // Given
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> new ByteArrayInputStream(new byte[]{1, 2, 3}));
+        service = new ImageRenditionService(minioService, true, "thumb=160x160", 1, 10, registry);
+
+        // When
+        service.generate(FILE_NAME);
+        await(() -> registry.get("blog.images.renditions.tasks").tag("result", "failed").counter().count() == 1);
+
+        // Then
+        assertEquals(FILE_NAME, service.resolve(FILE_NAME, "thumb"));
+        verify(minioService, never()).uploadBytes(anyString(), any(), anyString());
+    }
+
+    @Test
+    void render_survivesEvictionOfStatesDuringBuild() throws Exception {
+        // Given: построение держится, пока кэш состояний переполняется другими изображениями
+        byte[] original = png(800, 400);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Set<String> uploaded = ConcurrentHashMap.newKeySet();
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return new ByteArrayInputStream(original);
+        });
+        doAnswer(invocation -> uploaded.add(invocation.getArgument(0)))
+                .when(minioService).uploadBytes(anyString(), any(), anyString());
+        when(minioService.fileExists(anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("other_")
+                        || uploaded.contains(invocation.<String>getArgument(0)));
+        service = new ImageRenditionService(minioService, true, "thumb=160x160", 1, 10, registry);
+
+        // When
+        service.generate(FILE_NAME);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 30_000; i++) {
+            service.resolve("other_" + i + ".png", "thumb");
+        }
+        release.countDown();
+        await(() -> service.resolve(FILE_NAME, "thumb").equals("post_1_1700000000000_thumb.png"));
+
+        // Then: копии не удалены
+        verify(minioService, never()).deleteFile(anyString());
+        assertEquals(1, registry.get("blog.images.renditions.tasks").tag("result", "success").counter().count());
+    }
+
+    @Test
+    void delete_duringBuildRemovesRenditionsAfterUpload() throws Exception {
+        // Given
+        byte[] original = png(800, 400);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> {
+            started.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return new ByteArrayInputStream(original);
+        });
+        service = new ImageRenditionService(minioService, true, "thumb=160x160", 1, 10, registry);
+
+        // When: оригинал удален, пока строятся копии
+        service.generate(FILE_NAME);
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        service.delete(FILE_NAME);
+        release.countDown();
+
+        // Then: копия удалена и при удалении оригинала, и после ее загрузки
+        verify(minioService, timeout(10_000).times(2)).deleteFile("post_1_1700000000000_thumb.png");
+        InOrder order = inOrder(minioService);
+        order.verify(minioService).uploadBytes(eq("post_1_1700000000000_thumb.png"), any(), anyString());
+        order.verify(minioService).deleteFile("post_1_1700000000000_thumb.png");
+    }
+
+    @Test
+    void render_failedPartwayDeletesUploadedRenditions() throws Exception {
+        // Given: вторая копия не загружается
+        byte[] original = png(800, 400);
+        when(minioService.getFile(FILE_NAME)).thenAnswer(invocation -> new ByteArrayInputStream(original));
+        doThrow(new RuntimeException("MinIO unavailable"))
+                .when(minioService).uploadBytes(eq("post_1_1700000000000_card.png"), any(), anyString());
+        service = new ImageRenditionService(minioService, true, "thumb=160x160,card=400x200", 1, 10, registry);
+
+        // When
+        service.generate(FILE_NAME);
+
+        // Then
+        verify(minioService, timeout(10_000)).deleteFile("post_1_1700000000000_thumb.png");
+        verify(minioService, never()).deleteFile("post_1_1700000000000_card.png");
+        assertEquals(FILE_NAME, service.resolve(FILE_NAME, "thumb"));
+    }
+
+    @Test
+    void renditionName_keepsWritableFormatsAndFallsBackToJpeg() {
+        assertEquals("post_1_1_card.png", ImageRenditionService.renditionName("post_1_1.png", "card"));
+        assertEquals("post_1_1_card.jpeg", ImageRenditionService.renditionName("post_1_1.jpeg", "card"));
+        assertEquals("post_1_1_card.jpg", ImageRenditionService.renditionName("post_1_1.gif", "card"));
+    }
+
+    @Test
+    void controller_substituteOriginalIsNotCachedAsRendition() throws Exception {
+        // Given
+        PostService postService = mock(PostService.class);
+        ImageRenditionService renditions = mock(ImageRenditionService.class);
+        when(postService.findById(1L)).thenReturn(new Post(1L, "Пост", "текст", 0, 0, FILE_NAME));
+        when(minioService.getFileSize(anyString())).thenReturn(3L);
+        ImageController controller = new ImageController(postService, minioService, mock(ImageDiskCache.class),
+                mock(ImageMemoryCache.class), renditions);
+
+        // When: копия еще строится, затем готова
+        when(renditions.resolve(FILE_NAME, "card")).thenReturn(FILE_NAME);
+        ResponseEntity<StreamingResponseBody> pending = controller.getImage(1L, FILE_NAME, "card", new HttpHeaders());
+        when(renditions.resolve(FILE_NAME, "card")).thenReturn("post_1_1700000000000_card.png");
+        HttpHeaders revalidation = new HttpHeaders();
+        revalidation.setIfNoneMatch(pending.getHeaders().getETag());
+        ResponseEntity<StreamingResponseBody> ready = controller.getImage(1L, FILE_NAME, "card", revalidation);
+
+        // Then
+        assertEquals("no-cache", pending.getHeaders().getCacheControl());
+        assertEquals(-1, pending.getHeaders().getLastModified());
+        assertEquals(200, ready.getStatusCode().value());
+        assertEquals("\"post_1_1700000000000_card.png\"", ready.getHeaders().getETag());
+        assertEquals("max-age=31536000, public, immutable", ready.getHeaders().getCacheControl());
+        verify(minioService).getFileSize("post_1_1700000000000_card.png");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not reached in 10 s");
+            Thread.sleep(10);
+        }
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            image.setRGB(x, x * height / width, 0xFF0000);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,249 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcNativePostRepositoryTest {
+
+    private CountingDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private TagDictionary tagDictionary;
+    private JdbcNativePostRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new CountingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:repository_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        tagDictionary = new TagDictionary(jdbcTemplate, true);
+        repository = new JdbcNativePostRepository(jdbcTemplate, new TitleTrigramIndex(jdbcTemplate, false),
+                new TagBitmapIndex(jdbcTemplate, false), tagDictionary, List.of());
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+
+        jdbcTemplate.execute("""
+                    create table tags(
+                        id bigserial primary key,
+                        name varchar(50) not null unique
+                    )
+                """);
+
+        jdbcTemplate.execute("""
+                    create table comments(
+                        id bigserial primary key,
+                        text text not null,
+                        post_id bigint not null,
+                        foreign key (post_id) references posts(id) on delete cascade
+                    )
+                """);
+
+        jdbcTemplate.execute("""
+                    create table post_tags(
+                        post_id bigint not null,
+                        tag_id bigint not null,
+                        primary key (post_id, tag_id),
+                        foreign key (post_id) references posts(id) on delete cascade,
+                        foreign key (tag_id) references tags(id) on delete cascade
+                    )
+                """);
+
+        jdbcTemplate.execute("INSERT INTO tags(name) VALUES ('java'), ('spring'), ('sql')");
+
+        // 50 постов, у каждого по два тега
+        for (int i = 1; i <= 50; i++) {
+            jdbcTemplate.update(
+                    "INSERT INTO posts(id, title, text, likes_count, comments_count) VALUES (?, ?, ?, ?, 0)",
+                    i, "Пост " + i, "Текст " + i, i);
+            jdbcTemplate.update("INSERT INTO post_tags(post_id, tag_id) VALUES (?, 1)", i);
+            jdbcTemplate.update("INSERT INTO post_tags(post_id, tag_id) VALUES (?, ?)", i, i % 2 == 0 ? 2 : 3);
+        }
+
+        tagDictionary.reload();
+        dataSource.reset();
+    }
+
+    @Test
+    void findBySearchWithPagination_loadsTagsForWholePageInOneQuery() {
+        // When
+        List<Post> posts = repository.findBySearchWithPagination("", 1, 50);
+
+        // Then
+        assertEquals(50, posts.size());
+        // Запрос страницы + один запрос тегов для всех постов страницы
+        assertEquals(2, dataSource.getStatementCount());
+
+        for (Post post : posts) {
+            String expectedSecondTag = post.getId() % 2 == 0 ? "spring" : "sql";
+            assertEquals(List.of("java", expectedSecondTag), post.getTags());
+        }
+    }
+
+    @Test
+    void findBySearchWithPagination_emptyPageSkipsTagQuery() {
+        // When
+        List<Post> posts = repository.findBySearchWithPagination("#unknown", 1, 10);
+
+        // Then
+        assertTrue(posts.isEmpty());
+        assertEquals(1, dataSource.getStatementCount());
+    }
+
+    @Test
+    void findPageWithTotal_returnsRowsAndTotalInOneQuery() {
+        // When
+        PostSearchResult result = repository.findPageWithTotal(SearchQuery.parse("#spring"), 2, 10, true);
+
+        // Then
+        assertEquals(10, result.getPosts().size());
+        assertEquals(25, result.getTotal());
+        assertTrue(result.isHasNext());
+        // Страница вместе с количеством + теги страницы
+        assertEquals(2, dataSource.getStatementCount());
+    }
+
+    @Test
+    void findPageWithTotal_pageBeyondResultsFallsBackToCount() {
+        // When
+        PostSearchResult result = repository.findPageWithTotal(SearchQuery.parse("#spring"), 10, 10, true);
+
+        // Then
+        assertTrue(result.getPosts().isEmpty());
+        assertEquals(25, result.getTotal());
+        assertFalse(result.isHasNext());
+    }
+
+    @Test
+    void findPageWithTotal_estimatedModeSkipsCount() {
+        // When
+        PostSearchResult result = repository.findPageWithTotal(SearchQuery.parse(""), 5, 10, false);
+
+        // Then
+        assertEquals(10, result.getPosts().size());
+        assertNull(result.getTotal());
+        assertFalse(result.isHasNext());
+    }
+
+    @Test
+    void findById_usesBatchTagLoader() {
+        // When
+        Post post = repository.findById(2L);
+
+        // Then
+        assertNotNull(post);
+        assertEquals(List.of("java", "spring"), post.getTags());
+        assertEquals(2, dataSource.getStatementCount());
+    }
+
+    @Test
+    void saveTags_unchangedTagsWithIndexIssueNoStatements() {
+        // Given
+        TagBitmapIndex tagIndex = new TagBitmapIndex(jdbcTemplate, true);
+        tagIndex.rebuild();
+        JdbcNativePostRepository indexed = new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), tagIndex, tagDictionary, List.of(tagIndex));
+        dataSource.reset();
+
+        // When: тот же набор в другом регистре и порядке
+        indexed.saveTags(postWithTags(2L, "Spring", " java "));
+
+        // Then
+        assertEquals(0, dataSource.getStatementCount());
+    }
+
+    @Test
+    void saveTags_unchangedTagsWithoutIndexOnlyReadsCurrentTags() {
+        // When
+        repository.saveTags(postWithTags(2L, "java", "spring"));
+
+        // Then
+        assertEquals(1, dataSource.getStatementCount());
+    }
+
+    @Test
+    void saveTags_appliesOnlyDifference() {
+        // When: spring удаляется, kotlin (нового тега еще нет) и sql добавляются
+        repository.saveTags(postWithTags(2L, "java", "kotlin", "sql"));
+
+        // Then: текущие теги + DELETE + пакетный MERGE + id тегов + пакетная вставка связей
+        assertEquals(5, dataSource.getStatementCount());
+        assertEquals(List.of("java", "kotlin", "sql"), repository.findById(2L).getTags());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tags WHERE name = 'kotlin'", Integer.class));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tags", Integer.class));
+    }
+
+    private static Post postWithTags(Long id, String... tags) {
+        Post post = new Post(id, "Пост " + id, "Текст " + id, 0, 0, null);
+        post.setTags(new ArrayList<>(List.of(tags)));
+        return post;
+    }
+
+    /**
+     * DataSource, подсчитывающий количество подготовленных SQL-запросов
+     */
+    private static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger statementCount = new AtomicInteger();
+
+        CountingDataSource(DriverManagerDataSource target) {
+            super(target);
+        }
+
+        int getStatementCount() {
+            return statementCount.get();
+        }
+
+        void reset() {
+            statementCount.set(0);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection target = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("prepareStatement")
+                                || method.getName().equals("createStatement")) {
+                            statementCount.incrementAndGet();
+                        }
+                        try {
+                            return method.invoke(target, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package shm.yandex.practicum;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.configuration.BlogMetricsInterceptor;
+import shm.yandex.practicum.configuration.TracingDataSource;
+import shm.yandex.practicum.jfr.RequestPhaseEvent;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.CommentRepository;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JfrEventsTest {
+
+    @Test
+    void recording_containsRequestRepositoryAndSqlEvents(@TempDir Path dir) throws Exception {
+        // Given
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(new TracingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:jfr_events_test;DB_CLOSE_DELAY=-1", "sa", ""), 1_000));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+        jdbcTemplate.execute("INSERT INTO comments(text, post_id) VALUES ('к1', 1), ('к2', 1)");
+
+        ProxyFactory factory = new ProxyFactory(new CommentRepository(jdbcTemplate));
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(new BlogMetricsInterceptor(SimpleMeterRegistry::new));
+        CommentRepository repository = (CommentRepository) factory.getProxy();
+
+        Path file = dir.resolve("blog.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("shm.yandex.practicum.RequestPhase");
+            recording.enable("shm.yandex.practicum.RepositoryQuery");
+            recording.enable("shm.yandex.practicum.SqlStatement");
+            recording.start();
+
+            // When
+            RequestPhaseEvent phase = RequestPhaseEvent.start("getComments", "load");
+            repository.findByPostId(1L);
+            phase.finish();
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        // Then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent request = single(events, "shm.yandex.practicum.RequestPhase");
+        assertEquals("getComments", request.getString("endpoint"));
+        assertEquals("load", request.getString("phase"));
+
+        RecordedEvent query = single(events, "shm.yandex.practicum.RepositoryQuery");
+        assertEquals("CommentRepository", query.getString("repository"));
+        assertEquals("findByPostId", query.getString("operation"));
+        assertEquals(2, query.getInt("rows"));
+        assertTrue(query.getBoolean("success"));
+
+        RecordedEvent statement = single(events, "shm.yandex.practicum.SqlStatement");
+        assertEquals("SELECT", statement.getString("kind"));
+    }
+
+    @Test
+    void searchShape_namesQueryPartsWithoutValues() {
+        assertEquals("all", SearchQuery.parse("").shape());
+        assertEquals("title+tags+excluded", SearchQuery.parse("spring #java -#draft").shape());
+        assertEquals("anyOf", SearchQuery.parse("#java|kotlin").shape());
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream()
+                .filter(event -> event.getEventType().getName().equals(name))
+                .toList();
+        assertEquals(1, matching.size(), name);
+        return matching.getFirst();
+    }
+}
@@ -0,0 +1,173 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+import shm.yandex.practicum.service.LikeAggregator;
+import shm.yandex.practicum.service.PostPageCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+public class LikeAggregatorTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private LikeAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:like_aggregator_test;DB_CLOSE_DELAY=-1", "sa", ""));
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("""
+                    INSERT INTO posts (id, title, text, likes_count, comments_count)
+                    VALUES (1, 'Пост 1', 'текст', 10, 0), (2, 'Пост 2', 'текст', 0, 0)
+                """);
+
+        JdbcNativePostRepository repository = new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), new TagBitmapIndex(jdbcTemplate, false),
+                new TagDictionary(jdbcTemplate, false), List.of());
+        aggregator = new LikeAggregator(repository, new PostPageCache(repository, false, 1024, 30, 600));
+    }
+
+    @Test
+    void like_countsInMemoryUntilFlush() {
+        // When
+        aggregator.like(1L);
+        aggregator.like(1L);
+        Post post = aggregator.like(1L);
+
+        // Then
+        assertEquals(13, post.getLikesCount());
+        assertEquals(3, aggregator.pendingDelta(1L));
+        assertEquals(10, likesInDb(1));
+
+        // When
+        aggregator.flush();
+
+        // Then
+        assertEquals(13, likesInDb(1));
+        assertEquals(0, aggregator.pendingDelta(1L));
+        assertEquals(14, aggregator.like(1L).getLikesCount());
+    }
+
+    @Test
+    void like_unknownPostReturnsNull() {
+        assertNull(aggregator.like(999L));
+        assertEquals(0, aggregator.pendingDelta(999L));
+    }
+
+    @Test
+    void withPending_doesNotModifySharedPosts() {
+        // Given
+        Post shared = new Post(2L, "Пост 2", "текст", 0, 0, null);
+        aggregator.like(2L);
+
+        // When
+        List<Post> result = aggregator.withPending(List.of(shared));
+
+        // Then
+        assertEquals(1, result.getFirst().getLikesCount());
+        assertEquals(0, shared.getLikesCount());
+    }
+
+    @Test
+    void concurrentLikes_nothingLostOnShutdown() throws Exception {
+        // Given
+        int threads = 8;
+        int likesPerThread = 2_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+
+        // When: лайки идут параллельно со сбросом в БД
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < likesPerThread; i++) {
+                    aggregator.like(i % 2 == 0 ? 1L : 2L);
+                }
+            }));
+        }
+        Future<?> flusher = executor.submit(() -> {
+            while (!futures.stream().allMatch(Future::isDone)) {
+                aggregator.flush();
+            }
+        });
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        flusher.get();
+        executor.shutdown();
+        aggregator.destroy();
+
+        // Then
+        assertEquals(10 + threads * likesPerThread / 2, likesInDb(1));
+        assertEquals(threads * likesPerThread / 2, likesInDb(2));
+    }
+
+    @Test
+    void like_duringFlushCountsWrittenLikesOnce() throws Exception {
+        // Given: пакет уже записан в БД, но flush еще не применил результат
+        JdbcNativePostRepository repository = spy(new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), new TagBitmapIndex(jdbcTemplate, false),
+                new TagDictionary(jdbcTemplate, false), List.of()));
+        LikeAggregator blocked = new LikeAggregator(repository, new PostPageCache(repository, false, 1024, 30, 600));
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            Object result = invocation.callRealMethod();
+            committed.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return result;
+        }).when(repository).addLikes(any());
+        blocked.like(1L);
+        blocked.like(1L);
+
+        // When
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> flush = executor.submit(blocked::flush);
+        assertTrue(committed.await(10, TimeUnit.SECONDS));
+        Post during = blocked.like(1L);
+        release.countDown();
+        flush.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        // Then: снимок до записи плюс записываемые лайки, после записи - записанное значение без них
+        assertEquals(13, during.getLikesCount());
+        assertEquals(12, likesInDb(1));
+        assertEquals(1, blocked.pendingDelta(1L));
+        assertEquals(14, blocked.like(1L).getLikesCount());
+    }
+
+    private int likesInDb(long postId) {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = ?", Integer.class, postId);
+    }
+}
@@ -0,0 +1,131 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+import shm.yandex.practicum.service.LikeAggregator;
+import shm.yandex.practicum.service.PostPageCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Нагрузочное сравнение лайков: прежний путь (findById + UPDATE всех колонок + saveTags на каждый клик)
+ * и накопитель LikeAggregator. Все потоки лайкают один "вирусный" пост.
+ * Запуск: ./gradlew test -Pbenchmark --tests '*LikeBenchmarkTest'
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class LikeBenchmarkTest {
+
+    private static final int THREADS = 16;
+    private static final int LIKES_PER_THREAD = 2_000;
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcNativePostRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:like_benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("INSERT INTO posts (id, title, text, likes_count, comments_count) VALUES (1, 'Вирусный пост', 'текст', 0, 0)");
+        jdbcTemplate.execute("INSERT INTO tags(id, name) VALUES (1, 'java'), (2, 'spring')");
+        jdbcTemplate.execute("INSERT INTO post_tags(post_id, tag_id) VALUES (1, 1), (1, 2)");
+
+        repository = new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), new TagBitmapIndex(jdbcTemplate, false),
+                new TagDictionary(jdbcTemplate, false), List.of());
+    }
+
+    @Test
+    void compareReadModifyWriteWithAggregator() throws Exception {
+        // Прежний путь: прочитать пост, +1 в памяти, перезаписать все колонки и теги
+        AtomicInteger failed = new AtomicInteger();
+        double before = run(() -> {
+            try {
+                Post post = repository.findById(1L);
+                post.setLikesCount(post.getLikesCount() + 1);
+                jdbcTemplate.update("UPDATE posts SET title = ?, text = ?, likes_count = ?, image_file_name = ? WHERE id = ?",
+                        post.getTitle(), post.getText(), post.getLikesCount(), post.getImageFileName(), post.getId());
+                repository.saveTags(post);
+            } catch (RuntimeException e) {
+                // Параллельные delete/insert в post_tags конфликтуют по первичному ключу
+                failed.incrementAndGet();
+            }
+        });
+        int lost = THREADS * LIKES_PER_THREAD - likesInDb();
+        System.out.printf("read-modify-write: %.0f likes/sec, lost updates: %d, failed requests: %d%n",
+                before, lost, failed.get());
+
+        jdbcTemplate.update("UPDATE posts SET likes_count = 0 WHERE id = 1");
+        LikeAggregator aggregator = new LikeAggregator(repository, new PostPageCache(repository, false, 1024, 30, 600));
+        ExecutorService flusher = Executors.newSingleThreadExecutor();
+        Future<?> flushing = flusher.submit(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                aggregator.flush();
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        double after = run(() -> aggregator.like(1L));
+        flushing.cancel(true);
+        flusher.shutdown();
+        aggregator.destroy();
+        System.out.printf("aggregator:        %.0f likes/sec, lost updates: %d%n",
+                after, THREADS * LIKES_PER_THREAD - likesInDb());
+
+        assertEquals(THREADS * LIKES_PER_THREAD, likesInDb());
+    }
+
+    private double run(Runnable like) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < LIKES_PER_THREAD; i++) {
+                    like.run();
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return THREADS * LIKES_PER_THREAD / (elapsed / 1e9);
+    }
+
+    private int likesInDb() {
+        return jdbcTemplate.queryForObject("SELECT likes_count FROM posts WHERE id = 1", Integer.class);
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import shm.yandex.practicum.model.Post;
 import shm.yandex.practicum.model.Comment;
+import shm.yandex.practicum.model.PostCursor;
 import shm.yandex.practicum.model.PostsPage;
 
 import java.util.Arrays;
@@ -156,4 +157,23 @@ public class ModelTests {
         assertNotNull(post.getTags());
         assertTrue(post.getTags().isEmpty());
     }
+
+    // Тесты для курсора keyset-пагинации
+    @Test
+    void testPostCursorEncodeDecode() {
+        Post cursorPost = new Post(42L, "Title", "Text", 7, 0, null);
+
+        PostCursor decoded = PostCursor.decode(PostCursor.after(cursorPost).encode());
+
+        assertEquals(7, decoded.getLikesCount());
+        assertEquals(42L, decoded.getId());
+        assertFalse(decoded.isBackward());
+        assertTrue(PostCursor.decode(PostCursor.before(cursorPost).encode()).isBackward());
+    }
+
+    @Test
+    void testPostCursorDecodeInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> PostCursor.decode("garbage"));
+    }
 }
+
@@ -1,5 +1,6 @@
 package shm.yandex.practicum;
 
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,6 +8,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 import shm.yandex.practicum.configuration.*;
@@ -122,6 +124,16 @@ public class PostControllerIntegrationTest {
                 .andExpect(jsonPath("$.tags[0]").value("tag1"));
     }
 
+    @Test
+    void getPosts_loadsPageWithoutNPlusOne() throws Exception {
+        // Посты со счетчиком, теги всех постов страницы, имена тегов - без запросов на каждый пост
+        SqlTrace.capture(() -> mockMvc.perform(get("/api/posts"))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.posts.length()").value(3)))
+                .assertStatementsAtMost(3)
+                .assertNoRepeatedStatements();
+    }
+
     @Test
     void getPostById_notFound() throws Exception {
         mockMvc.perform(get("/api/posts/999"))
@@ -150,4 +162,52 @@ public class PostControllerIntegrationTest {
                 .andExpect(jsonPath("$.posts.length()").value(1))
                 .andExpect(jsonPath("$.posts[0].title").value("Заголовок 1"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getPosts_withCursor_walksPagesForwardAndBack() throws Exception {
+        // Порядок ленты по лайкам: 2 (20), 3 (15), 1 (10)
+        MvcResult firstPage = mockMvc.perform(get("/api/posts")
+                        .param("cursor", "")
+                        .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(2))
+                .andExpect(jsonPath("$.posts[0].id").value(2))
+                .andExpect(jsonPath("$.posts[1].id").value(3))
+                .andExpect(jsonPath("$.hasPrev").value(false))
+                .andExpect(jsonPath("$.hasNext").value(true))
+                .andExpect(jsonPath("$.prevCursor").doesNotExist())
+                .andReturn();
+
+        String nextCursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        MvcResult secondPage = mockMvc.perform(get("/api/posts")
+                        .param("cursor", nextCursor)
+                        .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(1))
+                .andExpect(jsonPath("$.posts[0].id").value(1))
+                .andExpect(jsonPath("$.hasPrev").value(true))
+                .andExpect(jsonPath("$.hasNext").value(false))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andReturn();
+
+        String prevCursor = JsonPath.read(secondPage.getResponse().getContentAsString(), "$.prevCursor");
+
+        mockMvc.perform(get("/api/posts")
+                        .param("cursor", prevCursor)
+                        .param("pageSize", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.posts.length()").value(2))
+                .andExpect(jsonPath("$.posts[0].id").value(2))
+                .andExpect(jsonPath("$.posts[1].id").value(3))
+                .andExpect(jsonPath("$.hasPrev").value(false))
+                .andExpect(jsonPath("$.hasNext").value(true));
+    }
+
+    @Test
+    void getPosts_withInvalidCursor_returnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/posts")
+                        .param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+}
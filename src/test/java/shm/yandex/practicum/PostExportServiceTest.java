@@ -0,0 +1,117 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.ArchivedPost;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+import shm.yandex.practicum.service.PostExportService;
+import tools.jackson.databind.ObjectMapper;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostExportServiceTest {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().build();
+
+    private JdbcTemplate jdbcTemplate;
+    private PostExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:post_export_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+
+        jdbcTemplate.execute("INSERT INTO tags(id, name) VALUES (1, 'spring'), (2, 'java')");
+        jdbcTemplate.execute("""
+                    INSERT INTO posts(id, title, text, likes_count, comments_count, image_file_name) VALUES
+                        (1, 'Первый', 'текст 1', 3, 2, 'cover.png'),
+                        (2, 'Второй', 'текст 2', 0, 0, null),
+                        (5, 'Пятый', 'текст 5', 1, 1, null)
+                """);
+        // Пост 3 удален - его связи и комментарии должны пропускаться при слиянии
+        jdbcTemplate.execute("INSERT INTO post_tags(post_id, tag_id) VALUES (1, 1), (1, 2), (3, 1), (5, 2)");
+        jdbcTemplate.execute("""
+                    INSERT INTO comments(post_id, text) VALUES
+                        (5, 'к5'), (1, 'к1-1'), (3, 'сирота'), (1, 'к1-2')
+                """);
+
+        JdbcNativePostRepository repository = new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), new TagBitmapIndex(jdbcTemplate, false),
+                new TagDictionary(jdbcTemplate, false), List.of());
+        // Маленький fetchSize - курсоры читаются несколькими порциями
+        exportService = new PostExportService(repository, objectMapper, 2);
+    }
+
+    @Test
+    void exportPosts_mergesTagsAndCommentsInPostOrder() throws Exception {
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.exportPosts(out);
+
+        // Then
+        List<ArchivedPost> posts = parse(out);
+        assertEquals(3, exported);
+        assertEquals(List.of(1L, 2L, 5L), posts.stream().map(ArchivedPost::getId).toList());
+
+        ArchivedPost first = posts.get(0);
+        assertEquals("Первый", first.getTitle());
+        assertEquals(3, first.getLikesCount());
+        assertEquals("cover.png", first.getImageFileName());
+        assertEquals(List.of("java", "spring"), first.getTags());
+        assertEquals(List.of("к1-1", "к1-2"), first.getComments());
+
+        assertTrue(posts.get(1).getTags().isEmpty());
+        assertTrue(posts.get(1).getComments().isEmpty());
+        assertEquals(List.of("java"), posts.get(2).getTags());
+        assertEquals(List.of("к5"), posts.get(2).getComments());
+    }
+
+    @Test
+    void exportPosts_emptyBlogWritesNothing() throws Exception {
+        // Given
+        jdbcTemplate.execute("DELETE FROM posts");
+
+        // When
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long exported = exportService.exportPosts(out);
+
+        // Then
+        assertEquals(0, exported);
+        assertEquals(0, out.size());
+    }
+
+    private List<ArchivedPost> parse(ByteArrayOutputStream out) {
+        List<ArchivedPost> posts = new ArrayList<>();
+        for (String line : out.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) {
+                posts.add(objectMapper.readValue(line, ArchivedPost.class));
+            }
+        }
+        return posts;
+    }
+}
@@ -0,0 +1,83 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.ImportReport;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+import shm.yandex.practicum.service.PostImportService;
+import shm.yandex.practicum.service.PostPageCache;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Скорость импорта NDJSON в H2: 50 000 постов с тегами и комментариями.
+ * Запуск: ./gradlew test -Pbenchmark --tests '*PostImportBenchmarkTest'
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class PostImportBenchmarkTest {
+
+    private static final int POSTS = 50_000;
+
+    private JdbcTemplate jdbcTemplate;
+    private PostImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:import_benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+
+        JdbcNativePostRepository repository = new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), new TagBitmapIndex(jdbcTemplate, false),
+                new TagDictionary(jdbcTemplate, true), List.of());
+        importService = new PostImportService(repository, new PostPageCache(repository, false, 1024, 30, 600),
+                JsonMapper.builder().build(), 1000);
+    }
+
+    @Test
+    void importFiftyThousandPosts() throws Exception {
+        // Given
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < POSTS; i++) {
+            ndjson.append("{\"title\": \"Архивный пост ").append(i)
+                    .append("\", \"text\": \"Текст архивного поста номер ").append(i)
+                    .append("\", \"likesCount\": ").append(i % 100)
+                    .append(", \"tags\": [\"tag").append(i % 50).append("\", \"archive\"]")
+                    .append(", \"comments\": [\"Комментарий к посту ").append(i).append("\"]}\n");
+        }
+        byte[] payload = ndjson.toString().getBytes(StandardCharsets.UTF_8);
+
+        // When
+        ImportReport report = importService.importPosts(new ByteArrayInputStream(payload), 1000);
+
+        // Then
+        System.out.printf("import: %d posts in %d ms, %.0f posts/sec%n",
+                report.getImported(), report.getElapsedMs(), report.getPostsPerSecond());
+        assertEquals(POSTS, report.getImported());
+        assertEquals(POSTS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Integer.class));
+    }
+}
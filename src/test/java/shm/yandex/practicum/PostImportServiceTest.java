@@ -0,0 +1,139 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.ImportReport;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+import shm.yandex.practicum.service.PostImportService;
+import shm.yandex.practicum.service.PostPageCache;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostImportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcNativePostRepository repository;
+    private PostImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:post_import_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+        jdbcTemplate.execute("INSERT INTO tags(name) VALUES ('java')");
+
+        repository = new JdbcNativePostRepository(jdbcTemplate,
+                new TitleTrigramIndex(jdbcTemplate, false), new TagBitmapIndex(jdbcTemplate, false),
+                new TagDictionary(jdbcTemplate, true), List.of());
+        importService = new PostImportService(repository, new PostPageCache(repository, false, 1024, 30, 600),
+                JsonMapper.builder().build(), 1000);
+    }
+
+    @Test
+    void importPosts_writesPostsTagsAndCommentsInBatches() throws Exception {
+        // Given
+        String ndjson = """
+                {"title": "Первый", "text": "текст 1", "tags": ["Java", "spring"], "likesCount": 5, "comments": ["к1", "к2"]}
+                {"title": "Второй", "text": "текст 2", "tags": ["java"]}
+
+                {"title": "Третий", "text": "текст 3", "tags": ["spring", "spring"], "comments": ["к3"]}
+                """;
+
+        // When
+        ImportReport report = importService.importPosts(stream(ndjson), 2);
+
+        // Then
+        assertEquals(3, report.getLines());
+        assertEquals(3, report.getImported());
+        assertEquals(3, report.getComments());
+        assertEquals(0, report.getFailed());
+        assertEquals(2, report.getBatches().size());
+        assertEquals(1, report.getBatches().get(0).getFirstLine());
+        assertEquals(2, report.getBatches().get(0).getLastLine());
+        assertEquals(4, report.getBatches().get(1).getFirstLine());
+
+        Post first = repository.findById(1L);
+        assertEquals("Первый", first.getTitle());
+        assertEquals(5, first.getLikesCount());
+        assertEquals(2, first.getCommentsCount());
+        assertEquals(List.of("java", "spring"), first.getTags());
+        assertEquals(List.of("spring"), repository.findById(3L).getTags());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tags", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM comments", Integer.class));
+    }
+
+    @Test
+    void importPosts_skipsInvalidLinesAndReportsThem() throws Exception {
+        // Given
+        String ndjson = """
+                {"title": "Хороший", "text": "текст"}
+                {"title": "Без закрывающей скобки"
+                {"text": "нет заголовка"}
+                {"title": "Тоже хороший", "text": "текст"}
+                """;
+
+        // When
+        ImportReport report = importService.importPosts(stream(ndjson), 10);
+
+        // Then
+        assertEquals(4, report.getLines());
+        assertEquals(2, report.getImported());
+        assertEquals(2, report.getFailed());
+        assertEquals(2, report.getErrors().size());
+        assertTrue(report.getErrors().get(0).startsWith("line 2:"));
+        assertEquals("line 3: title is required", report.getErrors().get(1));
+        assertEquals(1, report.getBatches().size());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM posts", Integer.class));
+    }
+
+    @Test
+    void importPosts_failedBatchIsReportedAndImportContinues() throws Exception {
+        // Given: таблицы комментариев нет - вторая пачка падает на записи комментариев
+        jdbcTemplate.execute("DROP TABLE comments");
+        String ndjson = """
+                {"title": "Первый", "text": "текст"}
+                {"title": "Второй", "text": "текст", "comments": ["к1"]}
+                {"title": "Третий", "text": "текст"}
+                """;
+
+        // When
+        ImportReport report = importService.importPosts(stream(ndjson), 1);
+
+        // Then
+        assertEquals(2, report.getImported());
+        assertEquals(1, report.getFailed());
+        assertEquals(3, report.getBatches().size());
+        assertNull(report.getBatches().get(0).getError());
+        assertNotNull(report.getBatches().get(1).getError());
+        assertEquals(2, report.getBatches().get(1).getFirstLine());
+        assertNull(report.getBatches().get(2).getError());
+    }
+
+    private static ByteArrayInputStream stream(String ndjson) {
+        return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,187 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import shm.yandex.practicum.model.PageCacheStats;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.PostRepository;
+import shm.yandex.practicum.service.PostPageCache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PostPageCacheTest {
+
+    private static final SearchQuery FEED = SearchQuery.parse("");
+    private static final SearchQuery JAVA = SearchQuery.parse("#java");
+
+    @Mock
+    private PostRepository postRepository;
+
+    private PostPageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PostPageCache(postRepository, true, 1024 * 1024, 30, 600);
+    }
+
+    @Test
+    void repeatedPageServedFromCache() {
+        // Given
+        when(postRepository.findPageWithTotal(FEED, 1, 3, true)).thenReturn(feedPage());
+
+        // When
+        cache.findPageWithTotal(FEED, 1, 3, true);
+        PostSearchResult result = cache.findPageWithTotal(SearchQuery.parse("  "), 1, 3, true);
+
+        // Then
+        assertEquals(3, result.getPosts().size());
+        verify(postRepository, times(1)).findPageWithTotal(FEED, 1, 3, true);
+
+        PageCacheStats stats = cache.getStats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(1, stats.getSize());
+    }
+
+    @Test
+    void likeBelowPageKeepsEntry() {
+        // Given
+        when(postRepository.findPageWithTotal(FEED, 1, 3, true)).thenReturn(feedPage());
+        cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // When: пост с 5 лайками получает шестой - в первую тройку не попадает
+        cache.onPostChanged(post(10L, "Внизу", 5), post(10L, "Внизу", 6));
+        cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // Then
+        verify(postRepository, times(1)).findPageWithTotal(FEED, 1, 3, true);
+    }
+
+    @Test
+    void likeMovingPostOntoPageInvalidatesEntry() {
+        // Given
+        when(postRepository.findPageWithTotal(FEED, 1, 3, true)).thenReturn(feedPage());
+        cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // When
+        cache.onPostChanged(post(10L, "Внизу", 5), post(10L, "Внизу", 35));
+        cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // Then
+        verify(postRepository, times(2)).findPageWithTotal(FEED, 1, 3, true);
+    }
+
+    @Test
+    void newPostInvalidatesOnlyMatchingQueries() {
+        // Given
+        when(postRepository.findPageWithTotal(JAVA, 1, 3, true)).thenReturn(feedPage());
+        cache.findPageWithTotal(JAVA, 1, 3, true);
+
+        // When: пост без тега java не входит в выборку
+        cache.onPostChanged(null, post(11L, "Новый", 0, "kotlin"));
+        cache.findPageWithTotal(JAVA, 1, 3, true);
+
+        // Then
+        verify(postRepository, times(1)).findPageWithTotal(JAVA, 1, 3, true);
+
+        // When: пост с тегом java меняет общее количество
+        cache.onPostChanged(null, post(12L, "Еще новый", 0, "Java"));
+        cache.findPageWithTotal(JAVA, 1, 3, true);
+
+        // Then
+        verify(postRepository, times(2)).findPageWithTotal(JAVA, 1, 3, true);
+    }
+
+    @Test
+    void commentsChangeInvalidatesPagesWithPost() {
+        // Given
+        when(postRepository.findPageWithTotal(FEED, 1, 3, true)).thenReturn(feedPage());
+        cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // When
+        cache.onCommentsChanged(10L);
+        cache.findPageWithTotal(FEED, 1, 3, true);
+        cache.onCommentsChanged(2L);
+        cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // Then
+        verify(postRepository, times(2)).findPageWithTotal(FEED, 1, 3, true);
+    }
+
+    @Test
+    void pageLoadedAcrossWriteIsNotCached() throws Exception {
+        // Given: страница читается до создания поста, а загрузка завершается после сброса
+        PostSearchResult before = feedPage();
+        PostSearchResult after = new PostSearchResult(
+                List.of(post(13L, "Новый", 60, "java"), post(1L, "Первый", 50, "java"), post(2L, "Второй", 40, "java")),
+                11, true);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(postRepository.findPageWithTotal(FEED, 1, 3, true))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    assertTrue(release.await(10, TimeUnit.SECONDS));
+                    return before;
+                })
+                .thenReturn(after);
+
+        // When
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<PostSearchResult> inFlight = executor.submit(() -> cache.findPageWithTotal(FEED, 1, 3, true));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        cache.onPostChanged(null, post(13L, "Новый", 60, "java"));
+        release.countDown();
+        PostSearchResult first = inFlight.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+        PostSearchResult next = cache.findPageWithTotal(FEED, 1, 3, true);
+
+        // Then: запрос, начавшийся до записи, получил старую страницу, но в кэше ее нет
+        assertSame(before, first);
+        assertSame(after, next);
+        verify(postRepository, times(2)).findPageWithTotal(FEED, 1, 3, true);
+        assertSame(after, cache.findPageWithTotal(FEED, 1, 3, true));
+        verify(postRepository, times(2)).findPageWithTotal(FEED, 1, 3, true);
+    }
+
+    @Test
+    void disabledCachePassesThrough() {
+        // Given
+        PostPageCache disabled = new PostPageCache(postRepository, false, 1024, 30, 600);
+        when(postRepository.findPageWithTotal(FEED, 1, 3, true)).thenReturn(feedPage());
+
+        // When
+        disabled.findPageWithTotal(FEED, 1, 3, true);
+        disabled.findPageWithTotal(FEED, 1, 3, true);
+
+        // Then
+        verify(postRepository, times(2)).findPageWithTotal(FEED, 1, 3, true);
+        assertEquals(0, disabled.getStats().getSize());
+    }
+
+    private static PostSearchResult feedPage() {
+        return new PostSearchResult(
+                List.of(post(1L, "Первый", 50, "java"), post(2L, "Второй", 40, "java"), post(3L, "Третий", 30, "java")),
+                10, true);
+    }
+
+    private static Post post(Long id, String title, int likes, String... tags) {
+        Post post = new Post(id, title, "текст", likes, 0, null);
+        post.setTags(new ArrayList<>(List.of(tags)));
+        return post;
+    }
+}
@@ -3,18 +3,30 @@ package shm.yandex.practicum;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostCursor;
+import shm.yandex.practicum.model.PostSearchResult;
 import shm.yandex.practicum.model.PostsPage;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.FullTextSearchIndex;
 import shm.yandex.practicum.repository.PostRepository;
+import shm.yandex.practicum.service.LikeAggregator;
+import shm.yandex.practicum.service.PostPageCache;
 import shm.yandex.practicum.service.PostService;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,7 +35,9 @@ public class PostServiceTest {
     @Mock
     private PostRepository postRepository;
 
-    @InjectMocks
+    @Mock
+    private FullTextSearchIndex fullTextIndex;
+
     private PostService postService;
 
     private Post testPost;
@@ -31,6 +45,11 @@ public class PostServiceTest {
 
     @BeforeEach
     void setUp() {
+        // Кэш страниц выключен - запросы идут напрямую в репозиторий
+        PostPageCache pageCache = new PostPageCache(postRepository, false, 1024, 30, 600);
+        postService = new PostService(postRepository, fullTextIndex, pageCache,
+                new LikeAggregator(postRepository, pageCache));
+
         testPost = new Post(1L, "Test Post", "Test Content", 10, 5, "test.jpg");
         testPost.setTags(Arrays.asList("java", "spring"));
 
@@ -48,9 +67,8 @@ public class PostServiceTest {
         int pageNumber = 1;
         int pageSize = 10;
 
-        when(postRepository.findBySearchWithPagination(search, pageNumber, pageSize))
-                .thenReturn(testPosts);
-        when(postRepository.countBySearch(search)).thenReturn(3);
+        when(postRepository.findPageWithTotal(SearchQuery.parse(search), pageNumber, pageSize, true))
+                .thenReturn(new PostSearchResult(testPosts, 3, false));
 
         // When
         PostsPage result = postService.findPostsBySearchWithPagination(search, pageNumber, pageSize);
@@ -62,8 +80,40 @@ public class PostServiceTest {
         assertFalse(result.getHasNext()); // Все посты на одной странице
         assertEquals(1, result.getLastPage()); // Всего 1 страница
 
-        verify(postRepository, times(1)).findBySearchWithPagination(search, pageNumber, pageSize);
-        verify(postRepository, times(1)).countBySearch(search);
+        // Страница и количество - одним запросом
+        verify(postRepository, times(1)).findPageWithTotal(SearchQuery.parse(search), pageNumber, pageSize, true);
+        verify(postRepository, never()).countBySearch(anyString());
+    }
+
+    @Test
+    void testFindPostsBySearchWithPagination_EstimatedTotalForBroadSearch() {
+        // Given
+        when(postRepository.findPageWithTotal(SearchQuery.parse(""), 2, 10, false))
+                .thenReturn(new PostSearchResult(testPosts, null, true));
+
+        // When
+        PostsPage result = postService.findPostsBySearchWithPagination("", 2, 10, true);
+
+        // Then
+        assertTrue(result.getHasPrev());
+        assertTrue(result.getHasNext());
+        assertEquals(3, result.getLastPage()); // Нижняя оценка: есть как минимум следующая страница
+        verify(postRepository, times(1)).findPageWithTotal(SearchQuery.parse(""), 2, 10, false);
+    }
+
+    @Test
+    void testFindPostsBySearchWithPagination_EstimateIgnoredForTagSearch() {
+        // Given
+        String search = "#java";
+        when(postRepository.findPageWithTotal(SearchQuery.parse(search), 1, 10, true))
+                .thenReturn(new PostSearchResult(testPosts, 3, false));
+
+        // When
+        PostsPage result = postService.findPostsBySearchWithPagination(search, 1, 10, true);
+
+        // Then
+        assertEquals(1, result.getLastPage());
+        verify(postRepository, times(1)).findPageWithTotal(SearchQuery.parse(search), 1, 10, true);
     }
 
 
@@ -131,9 +181,8 @@ public class PostServiceTest {
         int pageNumber = 1;
         int pageSize = 10;
 
-        when(postRepository.findBySearchWithPagination(search, pageNumber, pageSize))
-                .thenReturn(testPosts);
-        when(postRepository.countBySearch(search)).thenReturn(3);
+        when(postRepository.findPageWithTotal(SearchQuery.parse(search), pageNumber, pageSize, true))
+                .thenReturn(new PostSearchResult(testPosts, 3, false));
 
         // When
         PostsPage result = postService.findPostsBySearchWithPagination(search, pageNumber, pageSize);
@@ -142,6 +191,64 @@ public class PostServiceTest {
         assertNotNull(result);
         assertEquals(3, result.getPosts().size());
         // Проверяем, что поиск по пустой строке возвращает все посты
-        verify(postRepository).findBySearchWithPagination(search, pageNumber, pageSize);
+        verify(postRepository).findPageWithTotal(SearchQuery.parse(search), pageNumber, pageSize, true);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testFindPostsBySearchWithCursor_cursorUsesPersistedLikes() {
+        // Given: у последнего поста страницы есть незаписанные лайки
+        when(postRepository.findById(1L)).thenReturn(testPosts.get(0));
+        postService.like(1L);
+        postService.like(1L);
+        when(postRepository.findBySearchAfterCursor(any(), isNull(), eq(false), eq(3)))
+                .thenReturn(List.of(testPosts.get(1), testPosts.get(0), testPosts.get(2)));
+
+        // When
+        PostsPage result = postService.findPostsBySearchWithCursor("", null, 2);
+
+        // Then: в ответе лайки с учетом накопленных, в курсоре - значение из БД
+        assertEquals(17, result.getPosts().get(1).getLikesCount());
+        PostCursor next = PostCursor.decode(result.getNextCursor());
+        assertEquals(15, next.getLikesCount());
+        assertEquals(1L, next.getId());
+    }
+
+    @Test
+    void testFindPostsByFullText_keepsRankAndFiltersByTags() {
+        // Given
+        when(fullTextIndex.isReady()).thenReturn(true);
+        when(fullTextIndex.search("spring", 1000)).thenReturn(List.of(
+                new FullTextSearchIndex.ScoredPost(3L, 2.5),
+                new FullTextSearchIndex.ScoredPost(1L, 1.5),
+                new FullTextSearchIndex.ScoredPost(2L, 0.5)));
+        when(postRepository.findIdsMatchingTags(List.of(3L, 1L, 2L), SearchQuery.parse("spring #java|kotlin -#draft")))
+                .thenReturn(Set.of(3L, 2L));
+        when(postRepository.findByIds(List.of(3L))).thenReturn(List.of(testPosts.get(2)));
+
+        // When
+        PostsPage result = postService.findPostsByFullText("spring #java|kotlin -#draft", 1, 1);
+
+        // Then
+        assertEquals(1, result.getPosts().size());
+        assertFalse(result.getHasPrev());
+        assertTrue(result.getHasNext());
+        assertEquals(2, result.getLastPage());
+        verify(postRepository, never()).findPageWithTotal(any(), anyInt(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    void testFindPostsByFullText_fallsBackWhenIndexNotReady() {
+        // Given
+        when(fullTextIndex.isReady()).thenReturn(false);
+        when(postRepository.findPageWithTotal(SearchQuery.parse("spring"), 1, 10, true))
+                .thenReturn(new PostSearchResult(testPosts, 3, false));
+
+        // When
+        PostsPage result = postService.findPostsByFullText("spring", 1, 10);
+
+        // Then
+        assertEquals(3, result.getPosts().size());
+        verify(fullTextIndex, never()).search(anyString(), anyInt());
+    }
+}
+
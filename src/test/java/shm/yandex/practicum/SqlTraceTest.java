@@ -0,0 +1,102 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.configuration.SqlTrace;
+import shm.yandex.practicum.configuration.TracingDataSource;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SqlTraceTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new TracingDataSource(
+                new DriverManagerDataSource("jdbc:h2:mem:sql_trace_test;DB_CLOSE_DELAY=-1", "sa", ""), 1_000));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("INSERT INTO tags(name) VALUES ('java'), ('spring'), ('sql')");
+    }
+
+    @Test
+    void normalize_replacesLiteralsAndCollapsesInLists() {
+        assertEquals("SELECT * FROM tags WHERE id IN (...) AND name = ? LIMIT ?",
+                SqlTrace.normalize("SELECT *\n  FROM tags WHERE id IN (?, ?,?) AND name = 'it''s' LIMIT 10"));
+        assertEquals("SELECT t1.id FROM t1 WHERE t1.id IN (...)",
+                SqlTrace.normalize("SELECT t1.id FROM t1 WHERE t1.id IN (?)"));
+    }
+
+    @Test
+    void capture_recordsStatementsWithRowCounts() throws Exception {
+        // When
+        SqlTrace trace = SqlTrace.capture(() -> {
+            jdbcTemplate.queryForList("SELECT name FROM tags WHERE id IN (?, ?)", String.class, 1, 2);
+            jdbcTemplate.update("UPDATE tags SET name = UPPER(name) WHERE id > ?", 1);
+            jdbcTemplate.batchUpdate("INSERT INTO tags(name) VALUES (?)", List.of(new Object[]{"a"}, new Object[]{"b"}));
+        });
+
+        // Then
+        assertEquals(3, trace.count());
+        List<SqlTrace.Statement> statements = trace.getStatements();
+        assertEquals("SELECT name FROM tags WHERE id IN (...)", statements.get(0).getSql());
+        assertEquals(2, statements.get(0).getRows());
+        assertEquals(2, statements.get(1).getRows());
+        assertEquals(2, statements.get(2).getRows());
+        trace.assertStatementsAtMost(3).assertNoRepeatedStatements();
+        assertThrows(AssertionError.class, () -> trace.assertStatementsAtMost(2));
+    }
+
+    @Test
+    void repeatedMoreThan_detectsNPlusOne() throws Exception {
+        // When: имена тегов по одному, как в N+1
+        SqlTrace trace = SqlTrace.capture(() -> {
+            for (long id = 1; id <= 3; id++) {
+                jdbcTemplate.queryForObject("SELECT name FROM tags WHERE id = ?", String.class, id);
+            }
+        });
+
+        // Then
+        assertEquals(Map.of("SELECT name FROM tags WHERE id = ?", 3), trace.repeatedMoreThan(2));
+        assertTrue(trace.repeatedMoreThan(3).isEmpty());
+        assertThrows(AssertionError.class, trace::assertNoRepeatedStatements);
+    }
+
+    @Test
+    void countsBySql_mergesTextsWithSameNormalForm() throws Exception {
+        // When: списки IN разной длины - разные тексты, но один нормализованный запрос
+        SqlTrace trace = SqlTrace.capture(() -> {
+            jdbcTemplate.queryForList("SELECT name FROM tags WHERE id IN (?)", String.class, 1);
+            jdbcTemplate.queryForList("SELECT name FROM tags WHERE id IN (?, ?)", String.class, 1, 2);
+            jdbcTemplate.queryForList("SELECT name FROM tags WHERE id IN (?)", String.class, 3);
+        });
+
+        // Then
+        assertEquals(Map.of("SELECT name FROM tags WHERE id IN (...)", 3), trace.countsBySql());
+    }
+
+    @Test
+    void statementsOutsideCaptureAreNotRecorded() throws Exception {
+        // Given
+        SqlTrace outer = SqlTrace.begin("outer");
+        SqlTrace inner;
+        try {
+            // When
+            inner = SqlTrace.capture(() -> jdbcTemplate.queryForList("SELECT name FROM tags", String.class));
+            jdbcTemplate.queryForList("SELECT id FROM tags", Long.class);
+        } finally {
+            outer.end();
+        }
+        jdbcTemplate.queryForList("SELECT id FROM tags", Long.class);
+
+        // Then: вложенная запись видна и во внешней
+        assertEquals(1, inner.count());
+        assertEquals(2, outer.count());
+    }
+}
@@ -0,0 +1,220 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagBitmapIndexTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TagBitmapIndex index;
+    private JdbcNativePostRepository repository;
+    // Тот же репозиторий без индекса - фильтры по тегам через SQL
+    private JdbcNativePostRepository sqlRepository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:tag_bitmap_test;DB_CLOSE_DELAY=-1", "sa", ""));
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table tags(
+                        id bigserial primary key,
+                        name varchar(50) not null unique
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table comments(
+                        id bigserial primary key,
+                        text text not null,
+                        post_id bigint not null
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table post_tags(
+                        post_id bigint not null,
+                        tag_id bigint not null,
+                        primary key (post_id, tag_id)
+                    )
+                """);
+        jdbcTemplate.execute("INSERT INTO tags(id, name) VALUES (1, 'java'), (2, 'spring'), (3, 'sql'), (4, 'draft')");
+        jdbcTemplate.execute("ALTER TABLE tags ALTER COLUMN id RESTART WITH 5");
+
+        // Пост i: java у всех, spring у четных, sql у нечетных, draft у каждого третьего
+        for (int i = 1; i <= 12; i++) {
+            jdbcTemplate.update(
+                    "INSERT INTO posts(id, title, text, likes_count, comments_count) VALUES (?, ?, ?, ?, 0)",
+                    i, "Пост " + i, "Текст " + i, i);
+            jdbcTemplate.update("INSERT INTO post_tags(post_id, tag_id) VALUES (?, 1)", i);
+            jdbcTemplate.update("INSERT INTO post_tags(post_id, tag_id) VALUES (?, ?)", i, i % 2 == 0 ? 2 : 3);
+            if (i % 3 == 0) {
+                jdbcTemplate.update("INSERT INTO post_tags(post_id, tag_id) VALUES (?, 4)", i);
+            }
+        }
+        jdbcTemplate.execute("ALTER TABLE posts ALTER COLUMN id RESTART WITH 13");
+
+        index = new TagBitmapIndex(jdbcTemplate, true);
+        index.rebuild();
+        TitleTrigramIndex titleIndex = new TitleTrigramIndex(jdbcTemplate, false);
+        repository = new JdbcNativePostRepository(jdbcTemplate, titleIndex, index,
+                new TagDictionary(jdbcTemplate, false), List.of(index));
+        sqlRepository = new JdbcNativePostRepository(jdbcTemplate, titleIndex,
+                new TagBitmapIndex(jdbcTemplate, false), new TagDictionary(jdbcTemplate, false), List.of());
+    }
+
+    @Test
+    void evaluate_andOrNot() {
+        assertEquals(6, index.evaluate(SearchQuery.parse("#java #spring")).getCardinality());
+        assertEquals(12, index.evaluate(SearchQuery.parse("#spring|sql")).getCardinality());
+        assertEquals(List.of(2, 4, 8, 10), toList(index.evaluate(SearchQuery.parse("#spring -#draft")).toArray()));
+        assertEquals(List.of(3, 9), toList(index.evaluate(SearchQuery.parse("-#spring #draft|#unknown")).toArray()));
+        assertTrue(index.evaluate(SearchQuery.parse("#unknown")).isEmpty());
+        assertNull(index.evaluate(SearchQuery.parse("пост")));
+    }
+
+    @Test
+    void evaluate_disabledIndexReturnsNull() {
+        TagBitmapIndex disabled = new TagBitmapIndex(jdbcTemplate, false);
+        disabled.rebuild();
+
+        assertNull(disabled.evaluate(SearchQuery.parse("#java")));
+    }
+
+    @Test
+    void repositorySearch_sameResultAsSql() {
+        for (String search : List.of("#java", "#spring -#draft", "#sql|draft", "-#java", "#draft пост 1", "-#sql")) {
+            SearchQuery query = SearchQuery.parse(search);
+
+            PostSearchResult expected = sqlRepository.findPageWithTotal(query, 1, 5, true);
+            PostSearchResult actual = repository.findPageWithTotal(query, 1, 5, true);
+
+            assertEquals(expected.getTotal(), actual.getTotal(), search);
+            assertEquals(expected.isHasNext(), actual.isHasNext(), search);
+            assertEquals(ids(expected.getPosts()), ids(actual.getPosts()), search);
+            assertEquals(sqlRepository.countBySearch(search), repository.countBySearch(search), search);
+        }
+    }
+
+    @Test
+    void findIdsMatchingTags_appliesAnyOfAndExcludedTags() {
+        // Given
+        List<Long> ranked = List.of(6L, 3L, 4L, 1L, 9L);
+
+        // When
+        SearchQuery query = SearchQuery.parse("пост #spring|draft -#sql");
+
+        // Then: слова не фильтруют, теги - все три вида
+        assertEquals(Set.of(6L, 4L), repository.findIdsMatchingTags(ranked, query));
+        assertEquals(Set.of(6L, 4L), sqlRepository.findIdsMatchingTags(ranked, query));
+    }
+
+    @Test
+    void findPageWithTotal_tagOnlyTotalFromBitmap() {
+        // When
+        PostSearchResult result = repository.findPageWithTotal(SearchQuery.parse("#spring|sql -#draft"), 2, 5, true);
+
+        // Then
+        assertEquals(8, result.getTotal());
+        assertEquals(List.of(4L, 2L, 1L), ids(result.getPosts()));
+        assertFalse(result.isHasNext());
+    }
+
+    @Test
+    void repositoryWrites_updateBitmapsIncrementally() {
+        // Given
+        Post post = new Post(null, "Новый пост", "текст", 0, 0, null);
+        post.setTags(new ArrayList<>(List.of("Kotlin", "spring")));
+
+        // When
+        repository.save(post);
+
+        // Then
+        assertEquals(List.of(post.getId().intValue()), toList(index.evaluate(SearchQuery.parse("#kotlin")).toArray()));
+        assertEquals(7, repository.countBySearch("#spring"));
+
+        // When
+        post.setTags(new ArrayList<>(List.of("sql")));
+        repository.update(post);
+
+        // Then
+        assertTrue(index.evaluate(SearchQuery.parse("#kotlin")).isEmpty());
+        assertEquals(6, repository.countBySearch("#spring"));
+        assertEquals(7, repository.countBySearch("#sql"));
+
+        // When
+        repository.deletePost(post.getId());
+        repository.deletePost(1L);
+
+        // Then
+        assertEquals(5, repository.countBySearch("#sql"));
+        assertEquals(7, repository.countBySearch("-#draft"));
+    }
+
+    @Test
+    void rolledBackTagChange_doesNotReachBitmap() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+        Post post = repository.findById(2L);
+        post.setTags(new ArrayList<>(List.of("java", "kotlin")));
+
+        // When: замена тегов откатывается
+        transaction.executeWithoutResult(status -> {
+            repository.saveTags(post);
+            status.setRollbackOnly();
+        });
+
+        // Then: индекс не видел незафиксированных изменений
+        assertTrue(index.evaluate(SearchQuery.parse("#kotlin")).isEmpty());
+        assertEquals(6, repository.countBySearch("#spring"));
+
+        // When: повторная запись сравнивает с тегами из БД, а не из индекса
+        transaction.executeWithoutResult(status -> repository.saveTags(post));
+
+        // Then
+        assertEquals(List.of(2), toList(index.evaluate(SearchQuery.parse("#kotlin")).toArray()));
+        assertEquals(5, repository.countBySearch("#spring"));
+        assertEquals(List.of("java", "kotlin"), jdbcTemplate.queryForList(
+                "SELECT t.name FROM post_tags pt JOIN tags t ON t.id = pt.tag_id WHERE pt.post_id = 2 ORDER BY t.name",
+                String.class));
+    }
+
+    private static List<Long> ids(List<Post> posts) {
+        return posts.stream().map(Post::getId).toList();
+    }
+
+    private static List<Integer> toList(int[] values) {
+        List<Integer> result = new ArrayList<>();
+        for (int value : values) {
+            result.add(value);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+import shm.yandex.practicum.repository.TagDictionary;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TagDictionaryTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TagDictionary dictionary;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:tag_dictionary_test;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("INSERT INTO tags(name) VALUES ('java'), ('spring')");
+
+        dictionary = new TagDictionary(jdbcTemplate, true);
+        dictionary.reload();
+    }
+
+    @Test
+    void resolvesKnownAndUnknownTags() {
+        // Given: тег добавлен в БД в обход словаря
+        jdbcTemplate.execute("INSERT INTO tags(name) VALUES ('sql')");
+
+        // When
+        Map<String, Long> ids = dictionary.findIds(List.of("java", "sql", "unknown"));
+        Map<Long, String> names = dictionary.findNames(ids.values());
+
+        // Then
+        assertEquals(Set.of("java", "sql"), ids.keySet());
+        assertEquals(Set.of("java", "sql"), new HashSet<>(names.values()));
+        assertEquals(3, dictionary.size());
+    }
+
+    @Test
+    void concurrentResolveCreatesTagOnce() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Map<String, Long>>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> dictionary.resolveIds(List.of("kotlin", "java"))));
+        }
+        Set<Long> kotlinIds = new HashSet<>();
+        for (Future<Map<String, Long>> future : futures) {
+            kotlinIds.add(future.get().get("kotlin"));
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(1, kotlinIds.size());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM tags WHERE name = 'kotlin'", Integer.class));
+        assertEquals(kotlinIds.iterator().next(), dictionary.findIds(List.of("kotlin")).get("kotlin"));
+    }
+
+    @Test
+    void rolledBackTagIsNotRemembered() {
+        // Given
+        TransactionTemplate transaction = new TransactionTemplate(
+                new DataSourceTransactionManager(jdbcTemplate.getDataSource()));
+
+        // When: тег создан в транзакции, которая затем откатилась
+        transaction.executeWithoutResult(status -> {
+            assertNotNull(dictionary.resolveIds(List.of("kotlin")).get("kotlin"));
+            status.setRollbackOnly();
+        });
+
+        // Then
+        assertEquals(2, dictionary.size());
+        assertTrue(dictionary.findIds(List.of("kotlin")).isEmpty());
+        transaction.executeWithoutResult(status -> dictionary.resolveIds(List.of("kotlin")));
+        assertEquals(3, dictionary.size());
+    }
+}
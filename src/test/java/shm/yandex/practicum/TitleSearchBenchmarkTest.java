@@ -0,0 +1,115 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Сравнение поиска по заголовку через ILIKE и через триграммный индекс на 1 000 000 постов.
+ * Запуск: ./gradlew test -Pbenchmark --tests '*TitleSearchBenchmarkTest'
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class TitleSearchBenchmarkTest {
+
+    private static final int POSTS = 1_000_000;
+    private static final int ITERATIONS = 50;
+    private static final String[] WORDS = {
+            "весна", "spring", "java", "марафон", "город", "кофе", "поход", "jdbc", "горы", "море",
+            "рецепт", "отпуск", "kotlin", "книга", "фильм", "осень", "docker", "лес", "сад", "музыка"
+    };
+    private static final List<String> QUERIES = List.of("12345", "марафон кофе 7777", "abcdef", "spring горы", "docker");
+
+    private JdbcTemplate jdbcTemplate;
+    private JdbcNativePostRepository ilikeRepository;
+    private JdbcNativePostRepository indexedRepository;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:title_benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("create table comments(id bigserial primary key, text text not null, post_id bigint not null)");
+        jdbcTemplate.execute("create index idx_comments_post on comments(post_id)");
+        jdbcTemplate.execute("create table tags(id bigserial primary key, name varchar(50) not null unique)");
+        jdbcTemplate.execute("create table post_tags(post_id bigint not null, tag_id bigint not null, primary key (post_id, tag_id))");
+        jdbcTemplate.execute("create index idx_posts_likes_id on posts(likes_count desc, id)");
+
+        Random random = new Random(42);
+        List<Object[]> batch = new ArrayList<>();
+        for (int i = 0; i < POSTS; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)] + " #" + i;
+            batch.add(new Object[]{title, "text", random.nextInt(1000)});
+            if (batch.size() == 10_000) {
+                jdbcTemplate.batchUpdate(
+                        "INSERT INTO posts(title, text, likes_count, comments_count) VALUES (?, ?, ?, 0)", batch);
+                batch.clear();
+            }
+        }
+
+        ilikeRepository = new JdbcNativePostRepository(jdbcTemplate, new TitleTrigramIndex(jdbcTemplate, false),
+                new TagBitmapIndex(jdbcTemplate, false), new TagDictionary(jdbcTemplate, false), List.of());
+
+        TitleTrigramIndex index = new TitleTrigramIndex(jdbcTemplate, true);
+        long start = System.nanoTime();
+        index.rebuild();
+        System.out.printf("Trigram index build: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        indexedRepository = new JdbcNativePostRepository(jdbcTemplate, index,
+                new TagBitmapIndex(jdbcTemplate, false), new TagDictionary(jdbcTemplate, false), List.of(index));
+    }
+
+    @Test
+    void compareIlikeWithTrigramIndex() {
+        for (String search : QUERIES) {
+            SearchQuery query = SearchQuery.parse(search);
+
+            PostSearchResult expected = ilikeRepository.findPageWithTotal(query, 1, 10, true);
+            PostSearchResult actual = indexedRepository.findPageWithTotal(query, 1, 10, true);
+            assertEquals(expected.getTotal(), actual.getTotal());
+
+            long ilikeNanos = measure(ilikeRepository, query);
+            long indexNanos = measure(indexedRepository, query);
+
+            System.out.printf("search='%s' matches=%d ilike=%.2f ms trigram=%.2f ms%n",
+                    search, expected.getTotal(), ilikeNanos / 1e6, indexNanos / 1e6);
+        }
+    }
+
+    private long measure(JdbcNativePostRepository repository, SearchQuery query) {
+        // Прогрев
+        for (int i = 0; i < 5; i++) {
+            repository.findPageWithTotal(query, 1, 10, true);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            repository.findPageWithTotal(query, 1, 10, true);
+        }
+        return (System.nanoTime() - start) / ITERATIONS;
+    }
+}
@@ -0,0 +1,131 @@
+package shm.yandex.practicum;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import shm.yandex.practicum.model.Post;
+import shm.yandex.practicum.model.PostSearchResult;
+import shm.yandex.practicum.model.SearchQuery;
+import shm.yandex.practicum.repository.JdbcNativePostRepository;
+import shm.yandex.practicum.repository.TagBitmapIndex;
+import shm.yandex.practicum.repository.TagDictionary;
+import shm.yandex.practicum.repository.TitleTrigramIndex;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TitleTrigramIndexTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private TitleTrigramIndex index;
+    private JdbcNativePostRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(
+                new DriverManagerDataSource("jdbc:h2:mem:trigram_test;DB_CLOSE_DELAY=-1", "sa", ""));
+
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("""
+                    create table posts(
+                        id bigserial primary key,
+                        title varchar(256) not null,
+                        text varchar(256) not null,
+                        likes_count integer not null,
+                        comments_count integer not null,
+                        image_file_name varchar(255)
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table tags(
+                        id bigserial primary key,
+                        name varchar(50) not null unique
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table comments(
+                        id bigserial primary key,
+                        text text not null,
+                        post_id bigint not null
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    create table post_tags(
+                        post_id bigint not null,
+                        tag_id bigint not null,
+                        primary key (post_id, tag_id)
+                    )
+                """);
+        jdbcTemplate.execute("""
+                    INSERT INTO posts (id, title, text, likes_count, comments_count)
+                    VALUES
+                        (1, 'Весна в Москве', 'текст', 3, 0),
+                        (2, 'Spring Boot и JDBC', 'текст', 2, 0),
+                        (3, 'Осенний марафон', 'текст', 1, 0)
+                """);
+        jdbcTemplate.execute("ALTER TABLE posts ALTER COLUMN id RESTART WITH 4");
+
+        index = new TitleTrigramIndex(jdbcTemplate, true);
+        index.rebuild();
+        repository = new JdbcNativePostRepository(jdbcTemplate, index,
+                new TagBitmapIndex(jdbcTemplate, false), new TagDictionary(jdbcTemplate, false), List.of(index));
+    }
+
+    @Test
+    void findCandidates_caseInsensitiveSubstring() {
+        assertEquals(List.of(1L), index.findCandidates("МОСКВ"));
+        assertEquals(List.of(2L), index.findCandidates("boot и"));
+        assertEquals(List.of(), index.findCandidates("питер"));
+    }
+
+    @Test
+    void findCandidates_shortPatternCannotNarrow() {
+        assertNull(index.findCandidates("ос"));
+    }
+
+    @Test
+    void findCandidates_disabledIndexReturnsNull() {
+        TitleTrigramIndex disabled = new TitleTrigramIndex(jdbcTemplate, false);
+        disabled.rebuild();
+
+        assertNull(disabled.findCandidates("весна"));
+    }
+
+    @Test
+    void repositoryWrites_updateIndexIncrementally() {
+        // Given
+        Post post = new Post(null, "Зимний марафон", "текст", 0, 0, null);
+
+        // When
+        repository.save(post);
+
+        // Then
+        assertEquals(List.of(3L, post.getId()), index.findCandidates("марафон"));
+
+        // When
+        post.setTitle("Летний забег");
+        repository.update(post);
+
+        // Then
+        assertEquals(List.of(3L), index.findCandidates("марафон"));
+        assertEquals(List.of(post.getId()), index.findCandidates("забег"));
+
+        // When
+        repository.deletePost(3L);
+
+        // Then
+        assertEquals(List.of(), index.findCandidates("марафон"));
+    }
+
+    @Test
+    void repositorySearch_sameResultAsIlike() {
+        // When
+        PostSearchResult result = repository.findPageWithTotal(SearchQuery.parse("SPRING boot"), 1, 10, true);
+
+        // Then
+        assertEquals(1, result.getTotal());
+        assertEquals("Spring Boot и JDBC", result.getPosts().getFirst().getTitle());
+    }
+}